@@ -28,35 +28,40 @@ import android.content.ClipboardManager;
 import android.content.Context;
 import android.content.res.Resources;
 import android.inputmethodservice.InputMethodService;
-import android.inputmethodservice.Keyboard;
-import android.inputmethodservice.KeyboardView;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.TypedValue;
 import android.view.View;
+import android.view.inputmethod.EditorInfo;
 import android.view.inputmethod.InputConnection;
-import android.widget.Button;
-import android.widget.LinearLayout;
-import android.graphics.Color;
-import android.graphics.Typeface;
 import java.util.List;
 
 /**
  * Main keyboard service with word learning, emoji, and translation features
  */
-public class AnKeyboardService extends InputMethodService implements KeyboardView.OnKeyboardActionListener {
+public class AnKeyboardService extends InputMethodService implements KeyboardRenderView.OnKeyActionListener {
 
-    private KeyboardView keyboardView;
-    private Keyboard keyboard;
-    private Keyboard selectionKeyboard;
-    private LinearLayout candidateLayout;
+    private KeyboardRenderView keyboardView;
+    private KeyboardModel keyboard;
+    private KeyboardModel selectionKeyboard;
+    private GlideDecoder glideDecoder;
+    private final EditorState editorState = new EditorState();
+    private final EditBatch editBatch = new EditBatch(editorState);
+    private CandidateView candidateView;
     
     private LearningDictionary brain;
+    private PredictionWorker predictionWorker;
+    private TranslationExecutor translationExecutor;
+    private TranslationPipeline translationPipeline;
+    private OfflineTranslationQueue offlineTranslations;
+    // Folds bursts of keystrokes into one strip refresh per frame
+    private FrameCoalescer candidateRefresh;
     private LanguageManager languageManager;
     
     private boolean isCaps = false;
     private boolean isSelectionMode = false;
     private StringBuilder composing = new StringBuilder();
+    // Last committed word, for next-word prediction
+    private String previousWord;
     private Handler handler;
 
     @Override
@@ -64,9 +69,18 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         super.onCreate();
         try {
             brain = new LearningDictionary(this);
+            predictionWorker = new PredictionWorker(brain, this::showCandidates);
+            candidateRefresh = new FrameCoalescer(this::requestCandidates);
+            translationExecutor = new TranslationExecutor();
+            TranslateManager.init(this);
+            translationPipeline = new TranslationPipeline(translationExecutor, this::onTranslated);
+            offlineTranslations = new OfflineTranslationQueue(this, translationPipeline, translationExecutor);
+            translationPipeline.setOfflineQueue(offlineTranslations);
+            offlineTranslations.start();
             languageManager = new LanguageManager(this);
             handler = new Handler(Looper.getMainLooper());
-            seedInitialData();
+            // Reads the dictionary, which may be a database
+            predictionWorker.execute(this::seedInitialData);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -91,17 +105,64 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         }
     }
 
+    @Override
+    public void onFinishInput() {
+        super.onFinishInput();
+        previousWord = null;
+        try {
+            if (translationPipeline != null) {
+                translationPipeline.flush();
+            }
+            if (brain != null) {
+                brain.flush();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        try {
+            if (candidateRefresh != null) {
+                candidateRefresh.cancel();
+            }
+            if (predictionWorker != null) {
+                predictionWorker.quit();
+            }
+            if (translationPipeline != null) {
+                translationPipeline.cancel();
+            }
+            if (offlineTranslations != null) {
+                offlineTranslations.close();
+            }
+            if (translationExecutor != null) {
+                translationExecutor.shutdown();
+            }
+            if (brain != null) {
+                brain.close();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        super.onDestroy();
+    }
+
     @Override
     public View onCreateInputView() {
         try {
-            keyboardView = (KeyboardView) getLayoutInflater().inflate(R.layout.keyboard_view, null);
-            keyboard = new Keyboard(this, R.xml.qwerty);
-            selectionKeyboard = new Keyboard(this, R.xml.selection);
+            keyboardView = (KeyboardRenderView) getLayoutInflater().inflate(R.layout.keyboard_view, null);
+            int width = getResources().getDisplayMetrics().widthPixels
+                    - keyboardView.getPaddingLeft() - keyboardView.getPaddingRight();
+            keyboard = KeyboardModel.parse(this, R.xml.qwerty, width);
+            selectionKeyboard = KeyboardModel.parse(this, R.xml.selection, width);
+            brain.setSpatialModel(SpatialErrorModel.fromKeyboard(keyboard));
+            glideDecoder = new GlideDecoder(keyboard);
             
             if (keyboardView != null) {
                 keyboardView.setKeyboard(keyboard);
-                keyboardView.setOnKeyboardActionListener(this);
-                keyboardView.setPreviewEnabled(false);
+                keyboardView.setShifted(isCaps);
+                keyboardView.setOnKeyActionListener(this);
                 updateKeyboardTheme();
             }
         } catch (Exception e) {
@@ -110,12 +171,63 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         return keyboardView;
     }
 
+    @Override
+    public void onStartInput(EditorInfo attribute, boolean restarting) {
+        super.onStartInput(attribute, restarting);
+        editorState.onStartInput(attribute);
+    }
+
+    @Override
+    public void onUpdateSelection(int oldSelStart, int oldSelEnd, int newSelStart, int newSelEnd,
+                                  int candidatesStart, int candidatesEnd) {
+        super.onUpdateSelection(oldSelStart, oldSelEnd, newSelStart, newSelEnd, candidatesStart, candidatesEnd);
+        try {
+            if (!editorState.onUpdateSelection(newSelStart, newSelEnd, candidatesStart, candidatesEnd)) return;
+
+            // The cursor was moved away from the word being composed
+            InputConnection ic = getCurrentInputConnection();
+            if (composing.length() > 0) {
+                composing.setLength(0);
+                if (ic != null) {
+                    editBatch.begin(ic);
+                    editBatch.finishComposingText();
+                    editBatch.end();
+                }
+            }
+            // Refill the mirror with one bounded read so the new position has word context
+            editorState.getTextBeforeCursor(ic);
+            previousWord = editorState.getPreviousWord();
+            updateCandidates();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onStartInputView(EditorInfo info, boolean restarting) {
+        super.onStartInputView(info, restarting);
+        try {
+            if (keyboardView != null) {
+                keyboardView.setGlideEnabled(languageManager.isGlideTypingEnabled());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public View onCreateCandidatesView() {
         try {
             View v = getLayoutInflater().inflate(R.layout.candidate_view, null);
             if (v != null) {
-                candidateLayout = v.findViewById(R.id.candidate_layout);
+                candidateView = v.findViewById(R.id.candidate_view);
+                candidateView.setOnPickListener((word, isAutocorrect) -> {
+                    if (isAutocorrect) {
+                        pickAutoCorrect(word);
+                    } else {
+                        pickSuggestion(word);
+                    }
+                });
             }
             return v;
         } catch (Exception e) {
@@ -131,19 +243,18 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
             if (ic == null) return;
 
             switch (primaryCode) {
-                case Keyboard.KEYCODE_DELETE:
+                case KeyboardModel.KEYCODE_DELETE:
                     handleBackspace(ic);
                     break;
                     
-                case Keyboard.KEYCODE_SHIFT:
+                case KeyboardModel.KEYCODE_SHIFT:
                     isCaps = !isCaps;
-                    keyboard.setShifted(isCaps);
                     if (keyboardView != null) {
-                        keyboardView.invalidateAllKeys();
+                        keyboardView.setShifted(isCaps);
                     }
                     break;
                     
-                case Keyboard.KEYCODE_DONE: 
+                case KeyboardModel.KEYCODE_DONE: 
                 case 10:
                     commitAndLearn(ic, "\n");
                     break;
@@ -192,6 +303,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                     
                     composing.append(code);
                     ic.setComposingText(composing, 1);
+                    editorState.onSetComposingText(composing);
                     updateCandidates();
             }
         } catch (Exception e) {
@@ -203,12 +315,16 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
      * Commit word and learn it
      */
     private void commitAndLearn(InputConnection ic, String separator) {
+        editBatch.begin(ic);
         try {
             if (composing.length() > 0) {
                 String wordTyped = composing.toString();
                 
-                ic.commitText(wordTyped, 1);
+                // Sent together with the separator as one commit
+                editBatch.commitText(wordTyped);
                 brain.learnWord(wordTyped);
+                brain.learnBigram(previousWord, wordTyped);
+                previousWord = wordTyped;
                 
                 // Translate if enabled
                 if (languageManager.isTranslateEnabled()) {
@@ -218,29 +334,36 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                 composing.setLength(0);
             }
             
-            ic.commitText(separator, 1);
+            editBatch.commitText(separator);
+            if (translationPipeline != null) {
+                translationPipeline.addSeparator(separator);
+            }
+            if ("\n".equals(separator)) {
+                previousWord = null;
+            }
             updateCandidates();
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            editBatch.end();
         }
     }
 
     /**
-     * Translate word asynchronously
+     * Queue a word for translation with the rest of its phrase
      */
     private void translateWord(String word, InputConnection ic) {
-        new Thread(() -> {
-            try {
-                String targetLang = languageManager.getTranslateLanguage();
-                String translated = TranslateManager.translate(word, targetLang);
-                
-                if (translated != null && !translated.equals(word)) {
-                    // Optionally show translated word in candidates
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+        if (translationPipeline == null) return;
+        translationPipeline.addWord(word, languageManager.getTranslateLanguage());
+    }
+
+    /**
+     * Translated phrase from the pipeline
+     */
+    private void onTranslated(String text, String translated) {
+        if (translated != null && !translated.equals(text)) {
+            // Optionally show translated word in candidates
+        }
     }
 
     /**
@@ -252,13 +375,18 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
             if (length > 1) {
                 composing.delete(length - 1, length);
                 ic.setComposingText(composing, 1);
+                editorState.onSetComposingText(composing);
                 updateCandidates();
             } else if (length > 0) {
                 composing.setLength(0);
                 ic.commitText("", 0);
+                editorState.onCommitText("");
                 updateCandidates();
             } else {
                 ic.deleteSurroundingText(1, 0);
+                editorState.onDeleteBefore(1);
+                previousWord = null;
+                updateCandidates();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -266,61 +394,65 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     }
 
     /**
-     * Update word suggestions
+     * Update word suggestions on the next frame
      */
     private void updateCandidates() {
         try {
-            if (candidateLayout == null) return;
-            candidateLayout.removeAllViews();
+            if (candidateView == null || candidateRefresh == null) return;
+            candidateRefresh.schedule();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            if (composing.length() > 0) {
-                setCandidatesViewShown(true);
-                
-                List<String> suggestions = brain.getPredictions(composing.toString());
-
-                // First suggestion as autocorrect
-                if (!suggestions.isEmpty()) {
-                    String autocorrect = suggestions.get(0);
-                    if (!autocorrect.equalsIgnoreCase(composing.toString())) {
-                        Button btn = createSuggestionButton(autocorrect + " (Auto)", true);
-                        final String finalAutocorrect = autocorrect;
-                        btn.setOnClickListener(v -> pickAutoCorrect(finalAutocorrect));
-                        candidateLayout.addView(btn);
-                    }
+    /**
+     * Ask the worker for suggestions for the text composed by now
+     */
+    private void requestCandidates() {
+        try {
+            if (candidateView == null || predictionWorker == null) return;
+            predictionWorker.request(composing.toString(), previousWord);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Show suggestions computed by the prediction worker
+     */
+    private void showCandidates(String composingText, List<String> suggestions, boolean showAutocorrect) {
+        try {
+            if (candidateView == null) return;
+            candidateView.clear();
+
+            if (!composingText.isEmpty()) {
+                // Best match after the typed text as autocorrect, unless the typed word is known
+                int first = 1;
+                if (showAutocorrect) {
+                    candidateView.add(suggestions.get(1), true);
+                    first = 2;
                 }
 
                 // Other suggestions
-                for (int i = 1; i < Math.min(6, suggestions.size()); i++) {
-                    final String suggestion = suggestions.get(i);
-                    if (!suggestion.equalsIgnoreCase(composing.toString())) {
-                        Button btn = createSuggestionButton(suggestion, false);
-                        btn.setOnClickListener(v -> pickSuggestion(suggestion));
-                        candidateLayout.addView(btn);
+                for (int i = first; i < Math.min(6, suggestions.size()); i++) {
+                    String suggestion = suggestions.get(i);
+                    if (!suggestion.equalsIgnoreCase(composingText)) {
+                        candidateView.add(suggestion, false);
                     }
                 }
+                setCandidatesViewShown(true);
             } else {
-                setCandidatesViewShown(false);
+                for (int i = 0; i < Math.min(6, suggestions.size()); i++) {
+                    candidateView.add(suggestions.get(i), false);
+                }
+                setCandidatesViewShown(!suggestions.isEmpty());
             }
+            candidateView.commit();
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    /**
-     * Create suggestion button
-     */
-    private Button createSuggestionButton(String text, boolean isAutocorrect) {
-        Button btn = new Button(this);
-        btn.setText(text);
-        btn.setTextSize(TypedValue.COMPLEX_UNIT_SP, 16);
-        btn.setTypeface(null, isAutocorrect ? Typeface.BOLD : Typeface.NORMAL);
-        btn.setBackgroundColor(isAutocorrect ? Color.parseColor("#E8F5E8") : Color.TRANSPARENT);
-        btn.setTextColor(Color.parseColor("#1F1F1F"));
-        btn.setPadding(30, 0, 30, 0);
-        btn.setAllCaps(false);
-        return btn;
-    }
-
     /**
      * Pick a suggestion
      */
@@ -328,8 +460,15 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         try {
             InputConnection ic = getCurrentInputConnection();
             if (ic != null) {
-                ic.commitText(suggestion + " ", 1);
+                editBatch.begin(ic);
+                try {
+                    editBatch.commitText(suggestion + " ");
+                } finally {
+                    editBatch.end();
+                }
                 brain.learnWord(suggestion);
+                brain.learnBigram(previousWord, suggestion);
+                previousWord = suggestion;
                 composing.setLength(0);
                 updateCandidates();
             }
@@ -345,7 +484,12 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         try {
             InputConnection ic = getCurrentInputConnection();
             if (ic != null) {
-                ic.setComposingText(autocorrect, 1);
+                editBatch.begin(ic);
+                try {
+                    editBatch.setComposingText(autocorrect);
+                } finally {
+                    editBatch.end();
+                }
                 composing.setLength(0);
                 composing.append(autocorrect);
                 updateCandidates();
@@ -355,6 +499,37 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         }
     }
 
+    /**
+     * Show the best glided word as composing text and the others as suggestions
+     */
+    private void showGlideWords(List<String> words) {
+        try {
+            InputConnection ic = getCurrentInputConnection();
+            if (ic == null || words.isEmpty()) return;
+
+            // Glided words are separated like typed ones, in the same edit as the new word
+            editBatch.begin(ic);
+            try {
+                if (composing.length() > 0) {
+                    commitAndLearn(ic, " ");
+                }
+                candidateRefresh.cancel();
+
+                String word = words.get(0);
+                if (isCaps) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                composing.append(word);
+                editBatch.setComposingText(composing);
+                showCandidates(word, words, false);
+            } finally {
+                editBatch.end();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Show emoji picker dialog
      */
@@ -378,6 +553,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                     InputConnection ic = getCurrentInputConnection();
                     if (ic != null) {
                         ic.commitText(emojis[position], 1);
+                        editorState.onCommitText(emojis[position]);
                     }
                     dialog.dismiss();
                 } catch (Exception e) {
@@ -408,9 +584,6 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                     keyboardView.setKeyboard(keyboard);
                 }
             }
-            if (keyboardView != null) {
-                keyboardView.invalidateAllKeys();
-            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -422,13 +595,11 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     private void startSelection() {
         try {
             InputConnection ic = getCurrentInputConnection();
-            if (ic != null) {
-                CharSequence selected = ic.getSelectedText(0);
-                if (selected == null || selected.length() == 0) {
-                    CharSequence before = ic.getTextBeforeCursor(1000, 0);
-                    if (before != null && before.length() > 0) {
-                        ic.setSelection(before.length() - 1, before.length());
-                    }
+            if (ic != null && editorState.ensureKnown(ic) && !editorState.hasSelection()) {
+                int cursor = editorState.getSelectionStart();
+                if (cursor > 0) {
+                    ic.setSelection(cursor - 1, cursor);
+                    editorState.onSetSelection(cursor - 1, cursor);
                 }
             }
         } catch (Exception e) {
@@ -442,11 +613,12 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     private void expandSelectionLeft() {
         try {
             InputConnection ic = getCurrentInputConnection();
-            if (ic != null) {
-                CharSequence before = ic.getTextBeforeCursor(1000, 0);
-                int beforeLen = before != null ? before.length() : 0;
-                if (beforeLen > 0) {
-                    ic.setSelection(beforeLen - 1, beforeLen);
+            if (ic != null && editorState.ensureKnown(ic)) {
+                int start = editorState.getSelectionStart();
+                int end = editorState.getSelectionEnd();
+                if (start > 0) {
+                    ic.setSelection(start - 1, end);
+                    editorState.onSetSelection(start - 1, end);
                 }
             }
         } catch (Exception e) {
@@ -460,11 +632,14 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     private void expandSelectionRight() {
         try {
             InputConnection ic = getCurrentInputConnection();
-            if (ic != null) {
-                CharSequence before = ic.getTextBeforeCursor(1000, 0);
-                int beforeLen = before != null ? before.length() : 0;
-                if (beforeLen < 1000) {
-                    ic.setSelection(beforeLen, beforeLen + 1);
+            if (ic != null && editorState.ensureKnown(ic)) {
+                // Editors ignore a selection past the end of the text, so check for one more character
+                CharSequence next = ic.getTextAfterCursor(1, 0);
+                if (next != null && next.length() > 0) {
+                    int start = editorState.getSelectionStart();
+                    int end = editorState.getSelectionEnd();
+                    ic.setSelection(start, end + 1);
+                    editorState.onSetSelection(start, end + 1);
                 }
             }
         } catch (Exception e) {
@@ -479,10 +654,8 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
         try {
             InputConnection ic = getCurrentInputConnection();
             if (ic != null) {
-                CharSequence before = ic.getTextBeforeCursor(10000, 0);
-                CharSequence after = ic.getTextAfterCursor(10000, 0);
-                int total = (before != null ? before.length() : 0) + (after != null ? after.length() : 0);
-                ic.setSelection(0, total);
+                // The editor reports the new bounds through onUpdateSelection
+                ic.performContextMenuAction(android.R.id.selectAll);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -495,7 +668,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     private void cutText() {
         try {
             InputConnection ic = getCurrentInputConnection();
-            if (ic != null) {
+            if (ic != null && (!editorState.isKnown() || editorState.hasSelection())) {
                 CharSequence selected = ic.getSelectedText(0);
                 if (selected != null && selected.length() > 0) {
                     ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
@@ -503,6 +676,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                         ClipData clip = ClipData.newPlainText("text", selected);
                         clipboard.setPrimaryClip(clip);
                         ic.commitText("", 1);
+                        editorState.onCommitText("");
                     }
                 }
             }
@@ -517,7 +691,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     private void copyText() {
         try {
             InputConnection ic = getCurrentInputConnection();
-            if (ic != null) {
+            if (ic != null && (!editorState.isKnown() || editorState.hasSelection())) {
                 CharSequence selected = ic.getSelectedText(0);
                 if (selected != null && selected.length() > 0) {
                     ClipboardManager clipboard = (ClipboardManager) getSystemService(Context.CLIPBOARD_SERVICE);
@@ -544,6 +718,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
                 InputConnection ic = getCurrentInputConnection();
                 if (ic != null) {
                     ic.commitText(text, 1);
+                    editorState.onCommitText(text);
                 }
             }
         }
@@ -570,6 +745,17 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
     @Override public void onPress(int primaryCode) {}
     @Override public void onRelease(int primaryCode) {}
     @Override public void onText(CharSequence text) {}
+
+    @Override
+    public void onGlide(float[] xs, float[] ys, int count) {
+        try {
+            if (glideDecoder == null || predictionWorker == null) return;
+            candidateRefresh.cancel();
+            predictionWorker.requestGlide(glideDecoder, xs, ys, count, this::showGlideWords);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
     
     @Override 
     public void swipeLeft() { 
@@ -577,6 +763,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
             InputConnection ic = getCurrentInputConnection();
             if (ic != null) {
                 ic.deleteSurroundingText(50, 0);
+                editorState.onDeleteBefore(50);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -589,6 +776,7 @@ public class AnKeyboardService extends InputMethodService implements KeyboardVie
             InputConnection ic = getCurrentInputConnection();
             if (ic != null) {
                 ic.commitText(" ", 1);
+                editorState.onCommitText(" ");
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,290 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Word pair counts for next-word prediction. Words are interned to int IDs
+ * and each word keeps its successors in parallel int arrays, sorted by count,
+ * so a lookup only copies the head of one list. Capped at {@link #MAX_PAIRS}:
+ * past that the rarest pairs are dropped.
+ */
+public class BigramModel {
+    private static final int MAGIC = 0x414E4B42;
+    private static final int VERSION = 1;
+    // Distinct pairs kept; pruning goes down to three quarters of this
+    static final int MAX_PAIRS = 50000;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+
+    // Per word ID: successor IDs and their counts, highest count first
+    private int[][] nextIds = new int[16][];
+    private int[][] nextCounts = new int[16][];
+    private int[] nextSize = new int[16];
+
+    private int pairCount;
+
+    /**
+     * Count one occurrence of {@code next} right after {@code previous}
+     */
+    public void learn(String previous, String next) {
+        add(previous, next, 1);
+    }
+
+    /**
+     * Add the pairs of another model to this one
+     */
+    public void addAll(BigramModel other) {
+        for (int from = 0; from < other.words.size(); from++) {
+            String previous = other.words.get(from);
+            for (int i = 0; i < other.nextSize[from]; i++) {
+                add(previous, other.words.get(other.nextIds[from][i]), other.nextCounts[from][i]);
+            }
+        }
+    }
+
+    /**
+     * Copy of the model, for saving it on another thread
+     */
+    public BigramModel copy() {
+        BigramModel copy = new BigramModel();
+        int size = words.size();
+        copy.words.addAll(words);
+        copy.ids.putAll(ids);
+        copy.nextIds = new int[Math.max(16, size)][];
+        copy.nextCounts = new int[copy.nextIds.length][];
+        copy.nextSize = new int[copy.nextIds.length];
+        for (int from = 0; from < size; from++) {
+            if (nextSize[from] == 0) continue;
+            copy.nextIds[from] = Arrays.copyOf(nextIds[from], nextSize[from]);
+            copy.nextCounts[from] = Arrays.copyOf(nextCounts[from], nextSize[from]);
+            copy.nextSize[from] = nextSize[from];
+        }
+        copy.pairCount = pairCount;
+        return copy;
+    }
+
+    private void add(String previous, String next, int count) {
+        int from = intern(previous);
+        int to = intern(next);
+
+        int[] successors = nextIds[from];
+        int[] counts = nextCounts[from];
+        int size = nextSize[from];
+
+        int pos = -1;
+        for (int i = 0; i < size; i++) {
+            if (successors[i] == to) {
+                pos = i;
+                break;
+            }
+        }
+        if (pos < 0) {
+            if (successors == null || size == successors.length) {
+                int capacity = size == 0 ? 2 : size * 2;
+                successors = grow(successors, size, capacity);
+                counts = grow(counts, size, capacity);
+                nextIds[from] = successors;
+                nextCounts[from] = counts;
+            }
+            pos = size;
+            successors[pos] = to;
+            nextSize[from] = size + 1;
+            pairCount++;
+        }
+        counts[pos] += count;
+
+        // Counts only grow, so the pair can only move towards the head
+        while (pos > 0 && counts[pos - 1] < counts[pos]) {
+            int swapId = successors[pos - 1];
+            int swapCount = counts[pos - 1];
+            successors[pos - 1] = successors[pos];
+            counts[pos - 1] = counts[pos];
+            successors[pos] = swapId;
+            counts[pos] = swapCount;
+            pos--;
+        }
+
+        if (pairCount > MAX_PAIRS) {
+            prune(MAX_PAIRS * 3 / 4);
+        }
+    }
+
+    /**
+     * Drop the rarest pairs until at most {@code target} are left. Lists
+     * are sorted by count, so rare pairs are cut off their tails.
+     */
+    private void prune(int target) {
+        for (int threshold = 1; pairCount > target; threshold++) {
+            for (int from = 0; from < words.size(); from++) {
+                int size = nextSize[from];
+                while (size > 0 && nextCounts[from][size - 1] <= threshold) {
+                    size--;
+                }
+                pairCount -= nextSize[from] - size;
+                nextSize[from] = size;
+            }
+        }
+    }
+
+    /**
+     * Most frequent words seen after {@code previous}, best first
+     */
+    public List<String> predict(String previous, int limit) {
+        List<String> results = new ArrayList<>();
+        Integer from = ids.get(previous);
+        if (from == null) return results;
+
+        int[] successors = nextIds[from];
+        int count = Math.min(limit, nextSize[from]);
+        for (int i = 0; i < count; i++) {
+            results.add(words.get(successors[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Number of distinct word pairs
+     */
+    public int size() {
+        return pairCount;
+    }
+
+    private int intern(String word) {
+        Integer id = ids.get(word);
+        if (id != null) return id;
+
+        int newId = words.size();
+        words.add(word);
+        ids.put(word, newId);
+        if (newId == nextSize.length) {
+            int capacity = newId * 2;
+            int[][] grownIds = new int[capacity][];
+            int[][] grownCounts = new int[capacity][];
+            System.arraycopy(nextIds, 0, grownIds, 0, newId);
+            System.arraycopy(nextCounts, 0, grownCounts, 0, newId);
+            nextIds = grownIds;
+            nextCounts = grownCounts;
+            nextSize = grow(nextSize, newId, capacity);
+        }
+        return newId;
+    }
+
+    private static int[] grow(int[] array, int size, int capacity) {
+        int[] grown = new int[capacity];
+        if (array != null) {
+            System.arraycopy(array, 0, grown, 0, size);
+        }
+        return grown;
+    }
+
+    /**
+     * Replace the model with the content of a file written by {@link #save}
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported bigram file");
+            }
+            int wordCount = in.readInt();
+            for (int i = 0; i < wordCount; i++) {
+                intern(in.readUTF());
+            }
+            for (int from = 0; from < wordCount; from++) {
+                int size = in.readInt();
+                if (size == 0) continue;
+                int[] successors = new int[size];
+                int[] counts = new int[size];
+                for (int i = 0; i < size; i++) {
+                    successors[i] = in.readInt();
+                    counts[i] = in.readInt();
+                }
+                nextIds[from] = successors;
+                nextCounts[from] = counts;
+                nextSize[from] = size;
+                pairCount += size;
+            }
+        }
+        if (pairCount > MAX_PAIRS) {
+            prune(MAX_PAIRS * 3 / 4);
+        }
+    }
+
+    /**
+     * Write the whole model atomically. Words left without pairs by pruning are skipped.
+     */
+    public void save(File file) throws IOException {
+        // New IDs of the words still in a pair, -1 for the others
+        int[] newIds = new int[words.size()];
+        Arrays.fill(newIds, -1);
+        for (int from = 0; from < words.size(); from++) {
+            if (nextSize[from] == 0) continue;
+            newIds[from] = 0;
+            for (int i = 0; i < nextSize[from]; i++) {
+                newIds[nextIds[from][i]] = 0;
+            }
+        }
+        int wordCount = 0;
+        for (int id = 0; id < newIds.length; id++) {
+            if (newIds[id] == 0) newIds[id] = wordCount++;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(wordCount);
+            for (int id = 0; id < newIds.length; id++) {
+                if (newIds[id] >= 0) out.writeUTF(words.get(id));
+            }
+            for (int from = 0; from < newIds.length; from++) {
+                if (newIds[from] < 0) continue;
+                int size = nextSize[from];
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(newIds[nextIds[from][i]]);
+                    out.writeInt(nextCounts[from][i]);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
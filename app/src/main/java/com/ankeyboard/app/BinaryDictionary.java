@@ -0,0 +1,199 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.SharedPreferences;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Read-only, memory-mapped word list with frequencies.
+ *
+ * File layout (big endian):
+ * <pre>
+ *   int     magic "ANKD"
+ *   int     version
+ *   int     entry count N
+ *   int     reserved
+ *   int[N+1] key offsets into the key data
+ *   int[N]  frequencies
+ *   byte[]  UTF-8 keys, sorted, back to back
+ * </pre>
+ */
+public class BinaryDictionary {
+    private static final int MAGIC = 0x414E4B44;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int offsetsStart;
+    private final int frequenciesStart;
+    private final int keysStart;
+
+    private BinaryDictionary(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a dictionary file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported dictionary version " + buffer.getInt(4));
+        }
+        count = buffer.getInt(8);
+        offsetsStart = HEADER_SIZE;
+        frequenciesStart = offsetsStart + (count + 1) * 4;
+        keysStart = frequenciesStart + count * 4;
+        if (count < 0 || keysStart > buffer.capacity()
+                || keysStart + buffer.getInt(offsetsStart + count * 4) > buffer.capacity()) {
+            throw new IOException("Truncated dictionary file");
+        }
+    }
+
+    /**
+     * Map a dictionary file. The mapping stays valid after the file is closed.
+     */
+    public static BinaryDictionary open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return new BinaryDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String getWord(int index) {
+        int start = buffer.getInt(offsetsStart + index * 4);
+        int end = buffer.getInt(offsetsStart + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(keysStart + start + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    public int getFrequency(int index) {
+        return buffer.getInt(frequenciesStart + index * 4);
+    }
+
+    /**
+     * Frequency of a word, or 0 if it is not in the file
+     */
+    public int getFrequency(String word) {
+        int index = lowerBound(word);
+        if (index < count && getWord(index).equals(word)) {
+            return getFrequency(index);
+        }
+        return 0;
+    }
+
+    /**
+     * Index of the first word that is not less than the key
+     */
+    public int lowerBound(String key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getWord(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Write a dictionary file atomically
+     * @param words Words in ascending {@link String#compareTo} order
+     * @param frequencies Frequency of each word
+     * @param count Number of entries to write
+     */
+    public static void write(File file, String[] words, int[] frequencies, int count) throws IOException {
+        byte[][] keys = new byte[count][];
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            keys[i] = words[i].getBytes(UTF_8);
+            offsets[i + 1] = offsets[i] + keys[i].length;
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(0);
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(frequencies[i]);
+            }
+            for (byte[] key : keys) {
+                out.write(key);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * One-time move of the old SharedPreferences brain into a dictionary file.
+     * Does nothing if the file already exists. The preferences are cleared
+     * only after the file has been written.
+     */
+    public static void migrateFromPreferences(SharedPreferences prefs, File file) throws IOException {
+        if (file.exists()) return;
+
+        TreeMap<String, Integer> sorted = new TreeMap<>();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                sorted.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+
+        String[] words = new String[sorted.size()];
+        int[] frequencies = new int[sorted.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : sorted.entrySet()) {
+            words[i] = entry.getKey();
+            frequencies[i] = entry.getValue();
+            i++;
+        }
+        write(file, words, frequencies, i);
+        prefs.edit().clear().commit();
+    }
+}
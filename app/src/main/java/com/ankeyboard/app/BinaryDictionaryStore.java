@@ -0,0 +1,329 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Default store: a memory-mapped {@link BinaryDictionary} plus an append-only
+ * journal of changed words that is folded back into the file now and then.
+ * Thread safe: words are loaded on the prediction thread while the main
+ * thread writes. Writes only append to the journal; folding it into the
+ * file runs on a background thread.
+ */
+public class BinaryDictionaryStore implements DictionaryStore {
+    private static final String PREF_NAME = "AnKeyboard_Brain";
+    private static final String DICT_FILE = "AnKeyboard_Brain.dict";
+    private static final String JOURNAL_FILE = "AnKeyboard_Brain.journal";
+    // Journal set aside while it is being folded into the dictionary file
+    private static final String COMPACTING_FILE = "AnKeyboard_Brain.journal.compacting";
+    // Journal records replayed on start before they get folded into the dictionary file
+    private static final int COMPACT_THRESHOLD = 8192;
+
+    private final File dictFile;
+    private final File journalFile;
+    private final File compactingFile;
+    private BinaryDictionary dict;
+    // Latest journaled frequency of each word changed since the last compaction
+    private final TreeMap<String, Integer> journal = new TreeMap<>();
+    private int journalRecords;
+    // End of the last complete journal record
+    private long journalLength;
+    // Started on the first compaction, so stores that are only read start no thread
+    private ExecutorService compactor;
+    private boolean compacting;
+    private boolean closed;
+
+    public BinaryDictionaryStore(Context context) {
+        dictFile = new File(context.getFilesDir(), DICT_FILE);
+        journalFile = new File(context.getFilesDir(), JOURNAL_FILE);
+        compactingFile = new File(context.getFilesDir(), COMPACTING_FILE);
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        try {
+            BinaryDictionary.migrateFromPreferences(prefs, dictFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            // Keep the old words in the journal so the next compaction saves them
+            for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+                if (entry.getValue() instanceof Integer) {
+                    journal.put(entry.getKey(), (Integer) entry.getValue());
+                }
+            }
+        }
+        try {
+            if (dictFile.exists()) {
+                dict = BinaryDictionary.open(dictFile);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        readJournal();
+    }
+
+    /**
+     * Replay the journal. A record cut short by a crash is truncated away,
+     * so later appends do not land behind it.
+     */
+    private void readJournal() {
+        try {
+            restoreCompactingJournal(journalFile.length());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (!journalFile.exists()) return;
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+            DataInputStream in = new DataInputStream(buffer);
+            try {
+                while (journalLength < bytes.length) {
+                    String word = in.readUTF();
+                    int frequency = in.readInt();
+                    journal.put(word, frequency);
+                    journalRecords++;
+                    journalLength = bytes.length - buffer.available();
+                }
+            } catch (EOFException | UTFDataFormatException e) {
+                file.setLength(journalLength);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void loadInto(WordTrie.WordVisitor visitor) {
+        // Walked without the lock, so writes do not wait for the whole load
+        BinaryDictionary base;
+        Map<String, Integer> journaled;
+        synchronized (this) {
+            base = dict;
+            journaled = new TreeMap<>(journal);
+        }
+        if (base != null) {
+            for (int i = 0; i < base.size(); i++) {
+                visitor.visit(base.getWord(i), base.getFrequency(i));
+            }
+        }
+        for (Map.Entry<String, Integer> entry : journaled.entrySet()) {
+            visitor.visit(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public boolean hasPrefixIndex() {
+        return false;
+    }
+
+    @Override
+    public void queryPrefix(String prefix, int limit, WordTrie.WordVisitor visitor) {
+        // Every word is loaded into the in-memory index instead
+    }
+
+    @Override
+    public synchronized int getFrequency(String word) {
+        Integer journaled = journal.get(word);
+        if (journaled != null) return journaled;
+        return dict != null ? dict.getFrequency(word) : 0;
+    }
+
+    @Override
+    public synchronized void write(Map<String, Integer> words, boolean sync) throws IOException {
+        if (words.isEmpty()) return;
+
+        journal.putAll(words);
+        appendJournal(words, sync);
+        if (journalRecords >= COMPACT_THRESHOLD && !compacting && !closed) {
+            compacting = true;
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadExecutor();
+            }
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Append changed words to the journal, so a flush costs only the changed words
+     */
+    private void appendJournal(Map<String, Integer> words, boolean sync) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(journalFile, true)) {
+            FileChannel channel = fos.getChannel();
+            // Drop anything past the last complete record, e.g. left by a failed append
+            if (channel.size() > journalLength) {
+                channel.truncate(journalLength);
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Map.Entry<String, Integer> entry : words.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+            out.flush();
+            if (sync) {
+                fos.getFD().sync();
+            }
+            journalLength = channel.size();
+        }
+        journalRecords += words.size();
+    }
+
+    /**
+     * Merge the sorted file with the sorted journal into a new file. Runs on
+     * the compactor thread; writes keep going to a fresh journal meanwhile.
+     */
+    private void compact() {
+        BinaryDictionary base;
+        TreeMap<String, Integer> snapshot;
+        int snapshotRecords;
+        synchronized (this) {
+            try {
+                // Left over from a compaction that failed
+                if (restoreCompactingJournal(journalLength)) {
+                    journalLength = journalFile.length();
+                }
+                if (journalFile.exists()) {
+                    try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+                        file.setLength(journalLength);
+                    }
+                    if (!journalFile.renameTo(compactingFile)) {
+                        throw new IOException("Cannot move " + journalFile);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                compacting = false;
+                return;
+            }
+            base = dict;
+            snapshot = new TreeMap<>(journal);
+            snapshotRecords = journalRecords;
+            journalRecords = 0;
+            journalLength = 0;
+        }
+
+        BinaryDictionary merged = null;
+        try {
+            int baseSize = base != null ? base.size() : 0;
+            String[] words = new String[baseSize + snapshot.size()];
+            int[] frequencies = new int[words.length];
+            int count = 0;
+
+            int i = 0;
+            for (Map.Entry<String, Integer> entry : snapshot.entrySet()) {
+                String word = entry.getKey();
+                for (; i < baseSize; i++) {
+                    String baseWord = base.getWord(i);
+                    int cmp = baseWord.compareTo(word);
+                    if (cmp >= 0) {
+                        if (cmp == 0) i++;
+                        break;
+                    }
+                    words[count] = baseWord;
+                    frequencies[count++] = base.getFrequency(i);
+                }
+                words[count] = word;
+                frequencies[count++] = entry.getValue();
+            }
+            for (; i < baseSize; i++) {
+                words[count] = base.getWord(i);
+                frequencies[count++] = base.getFrequency(i);
+            }
+
+            BinaryDictionary.write(dictFile, words, frequencies, count);
+            merged = BinaryDictionary.open(dictFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        synchronized (this) {
+            compacting = false;
+            if (merged == null) {
+                // Keep the set-aside records in front of the new ones
+                try {
+                    if (restoreCompactingJournal(journalLength)) {
+                        journalLength = journalFile.length();
+                        journalRecords += snapshotRecords;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+            dict = merged;
+            // Words written again since the snapshot stay in the journal
+            for (Map.Entry<String, Integer> entry : snapshot.entrySet()) {
+                if (entry.getValue().equals(journal.get(entry.getKey()))) {
+                    journal.remove(entry.getKey());
+                }
+            }
+            compactingFile.delete();
+        }
+    }
+
+    /**
+     * Put the records of an unfinished compaction back in front of the journal
+     * @param length Bytes of the current journal to keep
+     * @return Whether there was anything to put back
+     */
+    private boolean restoreCompactingJournal(long length) throws IOException {
+        if (!compactingFile.exists()) return false;
+        if (journalFile.exists()) {
+            try (FileInputStream in = new FileInputStream(journalFile);
+                 FileOutputStream out = new FileOutputStream(compactingFile, true)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while (length > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, length))) > 0) {
+                    out.write(buffer, 0, read);
+                    length -= read;
+                }
+                out.getFD().sync();
+            }
+        }
+        if (!compactingFile.renameTo(journalFile)) {
+            throw new IOException("Cannot replace " + journalFile);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        // A running compaction still finishes, an interrupted one is redone on the next start
+        closed = true;
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * Suggestion strip that draws every candidate on one canvas. Paints and
+ * text widths are cached and the view never changes size, so an update
+ * costs one redraw and no allocation or layout pass.
+ */
+public class CandidateView extends View {
+    public static final int MAX_CANDIDATES = 6;
+    private static final String AUTO_SUFFIX = " (Auto)";
+    private static final int SLOT_PADDING = 30;
+
+    /**
+     * Called when a candidate is tapped
+     */
+    public interface OnPickListener {
+        void onPick(String word, boolean isAutocorrect);
+    }
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint boldPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint autocorrectPaint = new Paint();
+    private final Paint pressedPaint = new Paint();
+    private final float autoSuffixWidth;
+    private final int touchSlop;
+
+    private final String[] words = new String[MAX_CANDIDATES];
+    private final float[] lefts = new float[MAX_CANDIDATES];
+    private final float[] rights = new float[MAX_CANDIDATES];
+    private int count;
+    private boolean firstIsAutocorrect;
+    private float autoWordWidth;
+    private float contentWidth;
+
+    private float scrollOffset;
+    private float downX;
+    private float lastX;
+    private boolean dragging;
+    private int pressedIndex = -1;
+    private float baseline;
+
+    private OnPickListener listener;
+
+    public CandidateView(Context context) {
+        this(context, null);
+    }
+
+    public CandidateView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 16,
+                getResources().getDisplayMetrics());
+        int textColor = getResources().getColor(R.color.candidateText);
+
+        textPaint.setTextSize(textSize);
+        textPaint.setColor(textColor);
+        boldPaint.setTextSize(textSize);
+        boldPaint.setColor(textColor);
+        boldPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        autocorrectPaint.setColor(getResources().getColor(R.color.candidateAutocorrect));
+        pressedPaint.setColor(getResources().getColor(R.color.candidateHighlight));
+
+        autoSuffixWidth = boldPaint.measureText(AUTO_SUFFIX);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    public void setOnPickListener(OnPickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Start a new set of candidates. Call {@link #add} for each one, then {@link #commit}.
+     */
+    public void clear() {
+        count = 0;
+        firstIsAutocorrect = false;
+        contentWidth = getPaddingLeft();
+        pressedIndex = -1;
+    }
+
+    /**
+     * Append a candidate. Only the first one may be an autocorrect.
+     * @return false once the strip is full
+     */
+    public boolean add(String word, boolean isAutocorrect) {
+        if (count == MAX_CANDIDATES) return false;
+
+        if (count == 0) {
+            firstIsAutocorrect = isAutocorrect;
+        }
+        float width;
+        if (count == 0 && firstIsAutocorrect) {
+            autoWordWidth = boldPaint.measureText(word);
+            width = autoWordWidth + autoSuffixWidth + SLOT_PADDING * 2;
+        } else {
+            width = textPaint.measureText(word) + SLOT_PADDING * 2;
+        }
+        words[count] = word;
+        lefts[count] = contentWidth;
+        rights[count] = contentWidth + width;
+        contentWidth += width;
+        count++;
+        return true;
+    }
+
+    /**
+     * Show the candidates added since {@link #clear}
+     */
+    public void commit() {
+        scrollOffset = 0;
+        invalidate();
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        Paint.FontMetrics metrics = textPaint.getFontMetrics();
+        baseline = (h - metrics.ascent - metrics.descent) / 2f;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int height = getHeight();
+        for (int i = 0; i < count; i++) {
+            float left = lefts[i] - scrollOffset;
+            float right = rights[i] - scrollOffset;
+            if (right < 0 || left > getWidth()) continue;
+
+            boolean isAuto = i == 0 && firstIsAutocorrect;
+            if (i == pressedIndex) {
+                canvas.drawRect(left, 0, right, height, pressedPaint);
+            } else if (isAuto) {
+                canvas.drawRect(left, 0, right, height, autocorrectPaint);
+            }
+
+            Paint paint = isAuto ? boldPaint : textPaint;
+            float x = left + SLOT_PADDING;
+            canvas.drawText(words[i], x, baseline, paint);
+            if (isAuto) {
+                canvas.drawText(AUTO_SUFFIX, x + autoWordWidth, baseline, boldPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        float x = event.getX();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = x;
+                lastX = x;
+                dragging = false;
+                pressedIndex = hitTest(x);
+                invalidate();
+                return true;
+
+            case MotionEvent.ACTION_MOVE:
+                if (!dragging && Math.abs(x - downX) > touchSlop) {
+                    dragging = true;
+                    pressedIndex = -1;
+                }
+                if (dragging) {
+                    float maxOffset = Math.max(0, contentWidth + getPaddingRight() - getWidth());
+                    scrollOffset = Math.max(0, Math.min(maxOffset, scrollOffset + lastX - x));
+                    lastX = x;
+                    invalidate();
+                }
+                return true;
+
+            case MotionEvent.ACTION_UP:
+                int index = dragging ? -1 : hitTest(x);
+                pressedIndex = -1;
+                invalidate();
+                if (index >= 0 && listener != null) {
+                    listener.onPick(words[index], index == 0 && firstIsAutocorrect);
+                }
+                return true;
+
+            case MotionEvent.ACTION_CANCEL:
+                pressedIndex = -1;
+                invalidate();
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    private int hitTest(float x) {
+        float contentX = x + scrollOffset;
+        for (int i = 0; i < count; i++) {
+            if (contentX >= lefts[i] && contentX < rights[i]) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+/**
+ * Stops calling a backend that keeps failing or answering too slowly.
+ * After {@link #FAILURE_THRESHOLD} bad calls in a row the circuit opens and
+ * calls are refused without waiting. Once the retry delay has passed a
+ * single probe call is let through: success closes the circuit, failure
+ * opens it again with the delay doubled, up to {@link #MAX_RETRY_DELAY_MS}.
+ * Calls carry a ticket, so results of calls that started before the circuit
+ * last opened cannot change its state.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public static final int FAILURE_THRESHOLD = 3;
+    public static final long INITIAL_RETRY_DELAY_MS = 5000;
+    public static final long MAX_RETRY_DELAY_MS = 5 * 60 * 1000;
+    /** Returned by {@link #tryAcquire} when a call is refused */
+    public static final long REJECTED = -1;
+
+    private final String name;
+    private final long slowCallMillis;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long retryDelayMs = INITIAL_RETRY_DELAY_MS;
+    private long retryAt;
+    private boolean probing;
+    // Ticket of the next allowed call, of the current probe, and of the first call since the circuit last opened
+    private long nextTicket;
+    private long probeTicket = REJECTED;
+    private long firstTicketSinceOpen;
+
+    private long rejected;
+    private long slowCalls;
+    private long failedCalls;
+    private int timesOpened;
+
+    /**
+     * @param slowCallMillis Calls slower than this count as failures
+     */
+    public CircuitBreaker(String name, long slowCallMillis) {
+        this.name = name;
+        this.slowCallMillis = slowCallMillis;
+    }
+
+    /**
+     * Ticket for a call that may go ahead now, or {@link #REJECTED}. Every
+     * allowed call must be followed by {@link #onSuccess} or {@link #onFailure}
+     * with its ticket.
+     */
+    public synchronized long tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return nextTicket++;
+            case OPEN:
+                if (now() >= retryAt) {
+                    state = State.HALF_OPEN;
+                    return startProbe();
+                }
+                break;
+            case HALF_OPEN:
+                if (!probing) {
+                    return startProbe();
+                }
+                break;
+        }
+        rejected++;
+        return REJECTED;
+    }
+
+    public synchronized void onSuccess(long ticket, long millis) {
+        latency.record(millis);
+        if (millis > slowCallMillis) {
+            slowCalls++;
+            recordFailure(ticket);
+            return;
+        }
+        if (isStale(ticket)) return;
+        consecutiveFailures = 0;
+        // Only the probe closes the circuit
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            probing = false;
+            probeTicket = REJECTED;
+            retryDelayMs = INITIAL_RETRY_DELAY_MS;
+        }
+    }
+
+    public synchronized void onFailure(long ticket, long millis) {
+        latency.record(millis);
+        failedCalls++;
+        recordFailure(ticket);
+    }
+
+    private long startProbe() {
+        probing = true;
+        probeTicket = nextTicket++;
+        return probeTicket;
+    }
+
+    /**
+     * Whether a result must be ignored: the call started before the circuit
+     * last opened, or it is not the probe while one is running
+     */
+    private boolean isStale(long ticket) {
+        if (ticket < firstTicketSinceOpen) return true;
+        return state != State.CLOSED && ticket != probeTicket;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        // An open circuit past its delay is ready to probe
+        if (state == State.OPEN && now() >= retryAt) return State.HALF_OPEN;
+        return state;
+    }
+
+    /**
+     * Latency of every call that was let through, failed ones included
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    public synchronized long getSlowCallCount() {
+        return slowCalls;
+    }
+
+    public synchronized long getFailedCallCount() {
+        return failedCalls;
+    }
+
+    public synchronized int getTimesOpened() {
+        return timesOpened;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return name + ": " + getState() + ", " + latency + ", rejected=" + rejected
+                + ", slow=" + slowCalls + ", failed=" + failedCalls + ", opened=" + timesOpened;
+    }
+
+    private void recordFailure(long ticket) {
+        if (isStale(ticket)) return;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            // The probe failed, back off further
+            retryDelayMs = Math.min(MAX_RETRY_DELAY_MS, retryDelayMs * 2);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open();
+        }
+        probing = false;
+        probeTicket = REJECTED;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        firstTicketSinceOpen = nextTicket;
+        retryAt = now() + retryDelayMs;
+        timesOpened++;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000L;
+    }
+}
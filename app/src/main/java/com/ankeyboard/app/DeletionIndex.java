@@ -0,0 +1,258 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SymSpell-style index of deletion variants for typo-tolerant lookup.
+ *
+ * Every word contributes the hashes of all strings made by deleting up to
+ * {@link #MAX_DISTANCE} characters from its first {@link #PREFIX_LENGTH}
+ * characters. A misspelling finds its candidates by generating the same
+ * deletions of itself, so no insertions or substitutions are ever
+ * enumerated. Entries are packed as {@code (hash << 32) | wordId} in one
+ * sorted long array; words learned later go to a small unsorted buffer that
+ * is merged in once it fills up. Hash collisions only add candidates, which
+ * are then checked with a real edit distance.
+ */
+public class DeletionIndex {
+    public static final int MAX_DISTANCE = 2;
+    private static final int PREFIX_LENGTH = 7;
+    private static final int PENDING_LIMIT = 2048;
+    // Variants of a word at least PREFIX_LENGTH long: itself, one and two deletions
+    private static final int DELETIONS_PER_WORD = 1 + PREFIX_LENGTH + PREFIX_LENGTH * (PREFIX_LENGTH - 1) / 2;
+
+    /**
+     * Receives correction candidates from {@link #lookup}
+     */
+    public interface CandidateVisitor {
+        void visit(String word, int distance);
+    }
+
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private long[] sorted = new long[0];
+    private long[] pending = new long[64];
+    private int pendingCount;
+
+    /**
+     * Index a word. Words already indexed are ignored.
+     */
+    public void add(String word) {
+        addDeletions(word);
+        if (pendingCount >= PENDING_LIMIT) {
+            mergePending();
+        }
+    }
+
+    /**
+     * Index many words at once, e.g. the dictionary at start-up
+     */
+    public void addAll(List<String> newWords) {
+        // Size the buffer up front so it is not copied while growing
+        int needed = pendingCount + newWords.size() * DELETIONS_PER_WORD;
+        if (needed > pending.length) {
+            pending = Arrays.copyOf(pending, needed);
+        }
+        for (String word : newWords) {
+            addDeletions(word);
+        }
+        mergePending();
+        pending = new long[64];
+    }
+
+    private void addDeletions(String word) {
+        if (ids.containsKey(word)) return;
+
+        int id = words.size();
+        words.add(word);
+        ids.put(word, id);
+
+        int length = Math.min(PREFIX_LENGTH, word.length());
+        forEachDeletion(word, length, MAX_DISTANCE, hash -> {
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = pack(hash, id);
+        });
+    }
+
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Visit every indexed word within {@code maxDistance} edits of the input
+     */
+    public void lookup(String input, int maxDistance, CandidateVisitor visitor) {
+        maxDistance = Math.min(maxDistance, MAX_DISTANCE);
+        int length = Math.min(PREFIX_LENGTH, input.length());
+
+        final Set<Integer> hashes = new HashSet<>();
+        forEachDeletion(input, length, maxDistance, hashes::add);
+
+        Set<Integer> candidates = new HashSet<>();
+        for (int hash : hashes) {
+            int index = lowerBound(sorted, sorted.length, pack(hash, 0));
+            while (index < sorted.length && hashOf(sorted[index]) == hash) {
+                candidates.add(idOf(sorted[index]));
+                index++;
+            }
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            if (hashes.contains(hashOf(pending[i]))) {
+                candidates.add(idOf(pending[i]));
+            }
+        }
+
+        for (int id : candidates) {
+            String word = words.get(id);
+            if (Math.abs(word.length() - input.length()) > maxDistance) continue;
+            int distance = distance(input, word, maxDistance);
+            if (distance <= maxDistance) {
+                visitor.visit(word, distance);
+            }
+        }
+    }
+
+    private void mergePending() {
+        if (pendingCount == 0) return;
+
+        Arrays.sort(pending, 0, pendingCount);
+        long[] merged = new long[sorted.length + pendingCount];
+        int i = 0, j = 0, k = 0;
+        while (i < sorted.length || j < pendingCount) {
+            long next;
+            if (j >= pendingCount || (i < sorted.length && sorted[i] <= pending[j])) {
+                next = sorted[i++];
+            } else {
+                next = pending[j++];
+            }
+            // The same deletion can come from different positions, keep it once
+            if (k == 0 || merged[k - 1] != next) {
+                merged[k++] = next;
+            }
+        }
+        sorted = k == merged.length ? merged : Arrays.copyOf(merged, k);
+        pendingCount = 0;
+    }
+
+    private interface HashSink {
+        void accept(int hash);
+    }
+
+    /**
+     * Emit the String hash of the first {@code length} characters of the
+     * word with zero, one or two of them deleted, without building strings
+     */
+    private static void forEachDeletion(String word, int length, int maxDistance, HashSink sink) {
+        sink.accept(hash(word, length, -1, -1));
+        if (maxDistance < 1) return;
+        for (int i = 0; i < length; i++) {
+            sink.accept(hash(word, length, i, -1));
+            if (maxDistance < 2) continue;
+            for (int j = i + 1; j < length; j++) {
+                sink.accept(hash(word, length, i, j));
+            }
+        }
+    }
+
+    private static int hash(String word, int length, int skip1, int skip2) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            if (i != skip1 && i != skip2) {
+                h = 31 * h + word.charAt(i);
+            }
+        }
+        return h;
+    }
+
+    private static long pack(int hash, int id) {
+        // Flip the sign bit so signed long order matches unsigned hash order
+        return ((long) (hash ^ Integer.MIN_VALUE) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private static int hashOf(long entry) {
+        return (int) (entry >>> 32) ^ Integer.MIN_VALUE;
+    }
+
+    private static int idOf(long entry) {
+        return (int) entry;
+    }
+
+    private static int lowerBound(long[] array, int size, long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent
+     * transpositions), giving up once it must exceed {@code max}
+     */
+    public static int distance(String a, String b, int max) {
+        int n = a.length();
+        int m = b.length();
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(prev[j] + 1, current[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, prev2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+
+            int[] recycled = prev2;
+            prev2 = prev;
+            prev = current;
+            current = recycled;
+        }
+        return prev[m];
+    }
+}
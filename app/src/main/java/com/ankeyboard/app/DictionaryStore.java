@@ -0,0 +1,58 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Persistent storage behind {@link LearningDictionary}
+ */
+public interface DictionaryStore {
+
+    /**
+     * Feed the words that should be indexed in memory at start-up. Stores
+     * with their own prefix index feed only their most frequent words.
+     * Called on the prediction thread, as it reads every word.
+     */
+    void loadInto(WordTrie.WordVisitor visitor) throws IOException;
+
+    /**
+     * Whether {@link #queryPrefix} is answered by the store itself
+     */
+    boolean hasPrefixIndex();
+
+    /**
+     * Best stored completions of a prefix, most frequent first
+     */
+    void queryPrefix(String prefix, int limit, WordTrie.WordVisitor visitor);
+
+    /**
+     * Stored frequency of a word, or 0 if it was never saved
+     */
+    int getFrequency(String word);
+
+    /**
+     * Save the latest frequency of each changed word
+     * @param sync Wait until the data is on disk
+     */
+    void write(Map<String, Integer> words, boolean sync) throws IOException;
+
+    void close();
+}
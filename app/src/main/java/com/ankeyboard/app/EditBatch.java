@@ -0,0 +1,171 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.view.inputmethod.InputConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups the editor calls of one user action. Adjacent commits are merged
+ * into a single commitText, and only when more than one call is left are
+ * they wrapped in beginBatchEdit/endBatchEdit, so the app applies and lays
+ * out the whole edit once. Every call also updates the {@link EditorState}
+ * mirror. Batches nest; the outermost {@link #end()} sends everything.
+ */
+public class EditBatch {
+    private static final int OP_COMMIT = 0;
+    private static final int OP_COMPOSE = 1;
+    private static final int OP_DELETE = 2;
+    private static final int OP_FINISH_COMPOSING = 3;
+
+    private static class Op {
+        int type;
+        final StringBuilder text = new StringBuilder();
+        int length;
+    }
+
+    private final EditorState editorState;
+    private final List<Op> ops = new ArrayList<>();
+    // Reused Op objects, ops.size() of them are in use
+    private final List<Op> pool = new ArrayList<>();
+    private InputConnection ic;
+    private int depth;
+
+    private long requested;
+    private long issued;
+
+    public EditBatch(EditorState editorState) {
+        this.editorState = editorState;
+    }
+
+    /**
+     * Start collecting edits for an InputConnection
+     */
+    public void begin(InputConnection ic) {
+        if (depth++ == 0) {
+            this.ic = ic;
+        }
+    }
+
+    public void commitText(CharSequence text) {
+        requested++;
+        editorState.onCommitText(text);
+        Op last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        if (last != null && last.type == OP_COMMIT) {
+            last.text.append(text);
+        } else {
+            add(OP_COMMIT).text.append(text);
+        }
+    }
+
+    public void setComposingText(CharSequence text) {
+        requested++;
+        editorState.onSetComposingText(text);
+        Op last = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        // A newer composing text replaces the previous one outright
+        if (last != null && last.type == OP_COMPOSE) {
+            last.text.setLength(0);
+            last.text.append(text);
+        } else {
+            add(OP_COMPOSE).text.append(text);
+        }
+    }
+
+    public void deleteBefore(int length) {
+        requested++;
+        editorState.onDeleteBefore(length);
+        add(OP_DELETE).length = length;
+    }
+
+    public void finishComposingText() {
+        requested++;
+        editorState.onFinishComposingText();
+        add(OP_FINISH_COMPOSING);
+    }
+
+    /**
+     * Send the collected edits once the outermost batch ends
+     */
+    public void end() {
+        if (depth == 0 || --depth > 0) return;
+        try {
+            int count = ops.size();
+            if (ic != null && count > 0) {
+                if (count > 1) ic.beginBatchEdit();
+                for (int i = 0; i < count; i++) {
+                    Op op = ops.get(i);
+                    switch (op.type) {
+                        // The pooled builder is cleared below, so hand the editor its own copy
+                        case OP_COMMIT:
+                            ic.commitText(op.text.toString(), 1);
+                            break;
+                        case OP_COMPOSE:
+                            ic.setComposingText(op.text.toString(), 1);
+                            break;
+                        case OP_DELETE:
+                            ic.deleteSurroundingText(op.length, 0);
+                            break;
+                        case OP_FINISH_COMPOSING:
+                            ic.finishComposingText();
+                            break;
+                    }
+                }
+                if (count > 1) {
+                    ic.endBatchEdit();
+                    issued += 2;
+                }
+                issued += count;
+            }
+        } finally {
+            for (Op op : ops) {
+                op.text.setLength(0);
+                pool.add(op);
+            }
+            ops.clear();
+            ic = null;
+        }
+    }
+
+    /**
+     * Editor calls asked for, counting each commit, composing update and delete
+     */
+    public long getRequestedCalls() {
+        return requested;
+    }
+
+    /**
+     * Editor calls actually sent, including batch edit brackets
+     */
+    public long getIssuedCalls() {
+        return issued;
+    }
+
+    public long getSavedCalls() {
+        return requested - issued;
+    }
+
+    private Op add(int type) {
+        Op op = pool.isEmpty() ? new Op() : pool.remove(pool.size() - 1);
+        op.type = type;
+        op.length = 0;
+        ops.add(op);
+        return op;
+    }
+}
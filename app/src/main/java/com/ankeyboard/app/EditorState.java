@@ -0,0 +1,268 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.os.Build;
+import android.view.inputmethod.EditorInfo;
+import android.view.inputmethod.ExtractedText;
+import android.view.inputmethod.ExtractedTextRequest;
+import android.view.inputmethod.InputConnection;
+
+/**
+ * Local mirror of the editor around the cursor: selection bounds, the
+ * composing region and up to {@link #CONTEXT_LENGTH} characters before the
+ * cursor. Kept up to date from onStartInput, onUpdateSelection and the
+ * service's own edits, so key handlers never have to ask the editor for
+ * text over IPC.
+ */
+public class EditorState {
+    /** Characters of text before the cursor kept in the mirror */
+    public static final int CONTEXT_LENGTH = 256;
+
+    private int selectionStart = -1;
+    private int selectionEnd = -1;
+    private int composingLength;
+
+    // Text before the selection start, including the composing text. Null when unknown.
+    private StringBuilder textBefore;
+
+    // Selections our own edits will report, oldest first, to tell them apart from cursor moves
+    private static final int MAX_PENDING = 16;
+    private final int[] pendingStarts = new int[MAX_PENDING];
+    private final int[] pendingEnds = new int[MAX_PENDING];
+    private int pendingCount;
+
+    /**
+     * Reset for a new editor
+     */
+    public void onStartInput(EditorInfo info) {
+        selectionStart = info != null ? info.initialSelStart : -1;
+        selectionEnd = info != null ? info.initialSelEnd : -1;
+        composingLength = 0;
+        pendingCount = 0;
+        textBefore = null;
+        if (info != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            CharSequence initial = info.getInitialTextBeforeCursor(CONTEXT_LENGTH, 0);
+            if (initial != null) {
+                textBefore = new StringBuilder(initial);
+            }
+        }
+    }
+
+    /**
+     * Apply a selection update from the editor
+     * @return Whether the change came from somewhere other than our own edits
+     */
+    public boolean onUpdateSelection(int newSelStart, int newSelEnd, int candidatesStart, int candidatesEnd) {
+        if (!isKnown()) {
+            // Our edits had no bounds to expect, so take the first update as the starting point.
+            // It only counts as a move if it dropped the text we are composing.
+            boolean composingLost = composingLength > 0 && (candidatesStart < 0 || candidatesEnd != newSelStart);
+            pendingCount = 0;
+            selectionStart = newSelStart;
+            selectionEnd = newSelEnd;
+            if (composingLost) {
+                textBefore = null;
+                composingLength = 0;
+            }
+            return composingLost;
+        }
+
+        // Updates arrive late, so one of several queued edits may be the source
+        for (int i = 0; i < pendingCount; i++) {
+            if (pendingStarts[i] == newSelStart && pendingEnds[i] == newSelEnd) {
+                pendingCount -= i + 1;
+                System.arraycopy(pendingStarts, i + 1, pendingStarts, 0, pendingCount);
+                System.arraycopy(pendingEnds, i + 1, pendingEnds, 0, pendingCount);
+                return false;
+            }
+        }
+        if (pendingCount == 0 && newSelStart == selectionStart && newSelEnd == selectionEnd) {
+            return false;
+        }
+
+        // The cursor moved or the app changed the text, the mirrored text no longer lines up
+        pendingCount = 0;
+        textBefore = null;
+        selectionStart = newSelStart;
+        selectionEnd = newSelEnd;
+        composingLength = candidatesStart >= 0 && candidatesEnd == newSelStart
+                ? candidatesEnd - candidatesStart : 0;
+        return true;
+    }
+
+    /**
+     * Mirror {@link InputConnection#setComposingText}, cursor after the text
+     */
+    public void onSetComposingText(CharSequence text) {
+        replaceBeforeCursor(composingLength, text);
+        composingLength = text.length();
+    }
+
+    /**
+     * Mirror {@link InputConnection#commitText}, cursor after the text
+     */
+    public void onCommitText(CharSequence text) {
+        replaceBeforeCursor(composingLength, text);
+        composingLength = 0;
+    }
+
+    /**
+     * Mirror {@link InputConnection#finishComposingText}
+     */
+    public void onFinishComposingText() {
+        composingLength = 0;
+    }
+
+    /**
+     * Mirror {@link InputConnection#deleteSurroundingText} for text before the cursor
+     */
+    public void onDeleteBefore(int length) {
+        if (selectionStart < 0) return;
+        int deleted = Math.min(length, selectionStart);
+        if (textBefore != null) {
+            if (deleted > textBefore.length()) {
+                textBefore = null;
+            } else {
+                textBefore.setLength(textBefore.length() - deleted);
+            }
+        }
+        selectionStart -= deleted;
+        selectionEnd -= deleted;
+        expectUpdate();
+    }
+
+    /**
+     * Mirror {@link InputConnection#setSelection}
+     */
+    public void onSetSelection(int start, int end) {
+        if (start != selectionStart) {
+            textBefore = null;
+        }
+        selectionStart = start;
+        selectionEnd = end;
+        composingLength = 0;
+        expectUpdate();
+    }
+
+    public int getSelectionStart() {
+        return selectionStart;
+    }
+
+    public int getSelectionEnd() {
+        return selectionEnd;
+    }
+
+    public boolean hasSelection() {
+        return selectionStart >= 0 && selectionEnd != selectionStart;
+    }
+
+    /**
+     * Whether the selection bounds are known
+     */
+    public boolean isKnown() {
+        return selectionStart >= 0 && selectionEnd >= 0;
+    }
+
+    /**
+     * Make the selection bounds known if they are not, with one bounded read
+     * from the editor
+     * @return Whether the bounds are known now
+     */
+    public boolean ensureKnown(InputConnection ic) {
+        if (isKnown() || ic == null) return isKnown();
+        ExtractedTextRequest request = new ExtractedTextRequest();
+        request.hintMaxChars = CONTEXT_LENGTH;
+        ExtractedText extracted = ic.getExtractedText(request, 0);
+        if (extracted != null && extracted.selectionStart >= 0) {
+            selectionStart = extracted.startOffset + extracted.selectionStart;
+            selectionEnd = extracted.startOffset + extracted.selectionEnd;
+        } else {
+            // Without extracted text, only text shorter than asked for gives the cursor position
+            CharSequence before = ic.getTextBeforeCursor(CONTEXT_LENGTH, 0);
+            if (before == null || before.length() >= CONTEXT_LENGTH) return false;
+            selectionStart = before.length();
+            selectionEnd = selectionStart;
+            textBefore = new StringBuilder(before);
+        }
+        pendingCount = 0;
+        return true;
+    }
+
+    /**
+     * Mirrored text before the cursor, or null when it is not known.
+     * Asks the editor once to fill the mirror if an InputConnection is given.
+     */
+    public CharSequence getTextBeforeCursor(InputConnection ic) {
+        if (textBefore == null && ic != null) {
+            CharSequence before = ic.getTextBeforeCursor(CONTEXT_LENGTH, 0);
+            if (before != null) {
+                textBefore = new StringBuilder(before);
+            }
+        }
+        return textBefore;
+    }
+
+    /**
+     * Word right before the cursor (ignoring spaces and the composing text), or null
+     * when the mirror does not know it or the text ends a sentence
+     */
+    public String getPreviousWord() {
+        if (textBefore == null) return null;
+        int end = textBefore.length() - composingLength;
+        while (end > 0 && Character.isWhitespace(textBefore.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && Character.isLetterOrDigit(textBefore.charAt(start - 1))) {
+            start--;
+        }
+        return start < end ? textBefore.substring(start, end) : null;
+    }
+
+    private void replaceBeforeCursor(int replaced, CharSequence text) {
+        if (selectionStart >= 0) {
+            selectionStart = selectionStart - replaced + text.length();
+            selectionEnd = selectionStart;
+            expectUpdate();
+        }
+        if (textBefore != null) {
+            if (replaced > textBefore.length()) {
+                textBefore = null;
+                return;
+            }
+            textBefore.setLength(textBefore.length() - replaced);
+            textBefore.append(text);
+            if (textBefore.length() > CONTEXT_LENGTH * 2) {
+                textBefore.delete(0, textBefore.length() - CONTEXT_LENGTH);
+            }
+        }
+    }
+
+    private void expectUpdate() {
+        if (pendingCount == MAX_PENDING) {
+            System.arraycopy(pendingStarts, 1, pendingStarts, 0, MAX_PENDING - 1);
+            System.arraycopy(pendingEnds, 1, pendingEnds, 0, MAX_PENDING - 1);
+            pendingCount--;
+        }
+        pendingStarts[pendingCount] = selectionStart;
+        pendingEnds[pendingCount] = selectionEnd;
+        pendingCount++;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.view.Choreographer;
+
+/**
+ * Runs a task at most once per frame. Any number of {@link #schedule()}
+ * calls before the next vsync collapse into a single run. Must be used
+ * from the main thread.
+ */
+public class FrameCoalescer implements Choreographer.FrameCallback {
+    private final Runnable task;
+    private boolean scheduled;
+
+    private long requests;
+    private long coalesced;
+
+    public FrameCoalescer(Runnable task) {
+        this.task = task;
+    }
+
+    /**
+     * Run the task on the next frame, unless it is already due then
+     */
+    public void schedule() {
+        requests++;
+        if (scheduled) {
+            coalesced++;
+            return;
+        }
+        scheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Drop a scheduled run
+     */
+    public void cancel() {
+        if (scheduled) {
+            scheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        task.run();
+    }
+
+    /**
+     * Number of times a run was asked for
+     */
+    public long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * Number of requests folded into a run that was already scheduled
+     */
+    public long getCoalescedCount() {
+        return coalesced;
+    }
+}
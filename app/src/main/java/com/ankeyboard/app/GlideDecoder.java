@@ -0,0 +1,310 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a glide (continuous swipe) path into words from the learned
+ * dictionary. The path is resampled to a fixed number of points, then a
+ * beam search walks the prefix trie letter by letter: each letter must be
+ * passed close to its key, further along the path than the previous one,
+ * and only the best hypotheses per word length survive. Finished words are
+ * rescored by how closely their ideal key-to-key path follows the finger
+ * and by how often they were used.
+ */
+public class GlideDecoder {
+    /** Decoding stops extending hypotheses after this long */
+    public static final long TIME_BUDGET_MS = 25;
+
+    private static final int TABLE_SIZE = 128;
+    private static final int SAMPLES = 48;
+    private static final int BEAM_WIDTH = 128;
+    private static final int MAX_WORD_LENGTH = 24;
+    // How far from its key centre a letter may be passed, in key widths
+    private static final float MATCH_RADIUS = 1.1f;
+    private static final float LOCATION_WEIGHT = 0.5f;
+    private static final float FREQUENCY_WEIGHT = 0.15f;
+
+    private final float[] keyX = new float[TABLE_SIZE];
+    private final float[] keyY = new float[TABLE_SIZE];
+    private final boolean[] present = new boolean[TABLE_SIZE];
+    private final float keyWidth;
+    private final float radiusSquared;
+
+    // Work buffers, the decoder is used from one thread at a time
+    private final float[] pathX = new float[SAMPLES];
+    private final float[] pathY = new float[SAMPLES];
+    private final float[] idealX = new float[SAMPLES];
+    private final float[] idealY = new float[SAMPLES];
+    private float[] wordX = new float[MAX_WORD_LENGTH];
+    private float[] wordY = new float[MAX_WORD_LENGTH];
+
+    private WordTrie.Node[] beamNodes = new WordTrie.Node[BEAM_WIDTH];
+    private int[] beamPositions = new int[BEAM_WIDTH];
+    private float[] beamCosts = new float[BEAM_WIDTH];
+    private int beamSize;
+    private WordTrie.Node[] nextNodes = new WordTrie.Node[BEAM_WIDTH];
+    private int[] nextPositions = new int[BEAM_WIDTH];
+    private float[] nextCosts = new float[BEAM_WIDTH];
+    private float[] nextRanks = new float[BEAM_WIDTH];
+    private int nextSize;
+
+    public GlideDecoder(KeyboardModel keyboard) {
+        float totalWidth = 0;
+        int keyCount = 0;
+        for (KeyboardModel.Key key : keyboard.getKeys()) {
+            int code = key.getCode();
+            if (code <= 0 || code >= TABLE_SIZE || !Character.isLetterOrDigit(code)) continue;
+            keyX[code] = key.x + key.width / 2f;
+            keyY[code] = key.y + key.height / 2f;
+            present[code] = true;
+            totalWidth += key.width;
+            keyCount++;
+        }
+        keyWidth = keyCount > 0 ? totalWidth / keyCount : 1f;
+        radiusSquared = (MATCH_RADIUS * keyWidth) * (MATCH_RADIUS * keyWidth);
+    }
+
+    /**
+     * Whether a path is long enough to be a glide rather than a tap
+     */
+    public boolean isGlide(float[] xs, float[] ys, int count) {
+        return pathLength(xs, ys, count) >= keyWidth;
+    }
+
+    /**
+     * Words matching a path, best first
+     * @param xs Touch x coordinates, relative to the keyboard
+     * @param ys Touch y coordinates, relative to the keyboard
+     * @param count Number of touch points
+     */
+    public List<String> decode(WordTrie trie, float[] xs, float[] ys, int count, int limit) {
+        List<String> results = new ArrayList<>();
+        if (count < 2 || limit <= 0 || !isGlide(xs, ys, count)) return results;
+
+        long deadline = System.nanoTime() + TIME_BUDGET_MS * 1000000L;
+        resample(xs, ys, count, pathX, pathY);
+
+        WordTrie.Node[] found = new WordTrie.Node[limit];
+        float[] foundScores = new float[limit];
+        int foundCount = 0;
+
+        beamSize = 1;
+        beamNodes[0] = trie.getRoot();
+        beamPositions[0] = 0;
+        beamCosts[0] = 0;
+        for (int depth = 0; depth < MAX_WORD_LENGTH && beamSize > 0; depth++) {
+            nextSize = 0;
+            for (int b = 0; b < beamSize; b++) {
+                if (System.nanoTime() > deadline) {
+                    beamSize = 0;
+                    break;
+                }
+                WordTrie.Node node = beamNodes[b];
+                for (int c = 0; c < node.childCount; c++) {
+                    int key = keyFor(node.keys[c]);
+                    if (key < 0) continue;
+
+                    // The first letter has to be where the finger went down
+                    int position = depth == 0 ? 0 : match(key, beamPositions[b]);
+                    if (position < 0 || distanceSquared(key, position) > radiusSquared) continue;
+                    float cost = beamCosts[b] + distanceSquared(key, position) / radiusSquared;
+
+                    WordTrie.Node child = node.children[c];
+                    if (child.isWord() && depth > 0 && distanceSquared(key, SAMPLES - 1) <= radiusSquared) {
+                        float score = score(child, cost);
+                        foundCount = insert(found, foundScores, foundCount, child, score);
+                    }
+                    if (child.childCount > 0) {
+                        // Prefixes leading to frequent words are kept over equally close rare ones
+                        int best = child.topCount > 0 ? child.top[0].getFrequency() : 0;
+                        offer(child, position, cost, cost - FREQUENCY_WEIGHT * (float) Math.log(1 + best));
+                    }
+                }
+            }
+
+            // Swap beams
+            WordTrie.Node[] nodes = beamNodes;
+            beamNodes = nextNodes;
+            nextNodes = nodes;
+            int[] positions = beamPositions;
+            beamPositions = nextPositions;
+            nextPositions = positions;
+            float[] costs = beamCosts;
+            beamCosts = nextCosts;
+            nextCosts = costs;
+            beamSize = nextSize;
+        }
+
+        for (int i = 0; i < foundCount; i++) {
+            results.add(found[i].getWord());
+        }
+        return results;
+    }
+
+    /**
+     * First local minimum of the distance to a key, at or after a path
+     * position and within the match radius, or -1
+     */
+    private int match(int key, int from) {
+        int best = -1;
+        float bestDistance = radiusSquared;
+        for (int i = from; i < SAMPLES; i++) {
+            float d = distanceSquared(key, i);
+            if (d <= bestDistance) {
+                best = i;
+                bestDistance = d;
+            } else if (best >= 0) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Mean distance between the word's ideal path and the touch path in key
+     * widths, plus the per-letter location cost, minus a frequency bonus.
+     * Lower is better.
+     */
+    private float score(WordTrie.Node node, float locationCost) {
+        String word = node.getWord();
+        if (wordX.length < word.length()) {
+            wordX = new float[word.length()];
+            wordY = new float[word.length()];
+        }
+        for (int i = 0; i < word.length(); i++) {
+            int key = keyFor(word.charAt(i));
+            wordX[i] = keyX[key];
+            wordY[i] = keyY[key];
+        }
+        resample(wordX, wordY, word.length(), idealX, idealY);
+
+        float shape = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            float dx = idealX[i] - pathX[i];
+            float dy = idealY[i] - pathY[i];
+            shape += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        shape /= SAMPLES * keyWidth;
+        return shape + LOCATION_WEIGHT * locationCost / word.length()
+                - FREQUENCY_WEIGHT * (float) Math.log(1 + node.getFrequency());
+    }
+
+    /**
+     * Add a hypothesis to the next beam, keeping only the best ranked ones
+     */
+    private void offer(WordTrie.Node node, int position, float cost, float rank) {
+        int pos;
+        if (nextSize < BEAM_WIDTH) {
+            pos = nextSize++;
+        } else if (rank < nextRanks[BEAM_WIDTH - 1]) {
+            pos = BEAM_WIDTH - 1;
+        } else {
+            return;
+        }
+        while (pos > 0 && nextRanks[pos - 1] > rank) {
+            nextNodes[pos] = nextNodes[pos - 1];
+            nextPositions[pos] = nextPositions[pos - 1];
+            nextCosts[pos] = nextCosts[pos - 1];
+            nextRanks[pos] = nextRanks[pos - 1];
+            pos--;
+        }
+        nextNodes[pos] = node;
+        nextPositions[pos] = position;
+        nextCosts[pos] = cost;
+        nextRanks[pos] = rank;
+    }
+
+    private static int insert(WordTrie.Node[] found, float[] scores, int count, WordTrie.Node node, float score) {
+        int pos;
+        if (count < found.length) {
+            pos = count++;
+        } else if (score < scores[found.length - 1]) {
+            pos = found.length - 1;
+        } else {
+            return count;
+        }
+        while (pos > 0 && scores[pos - 1] > score) {
+            found[pos] = found[pos - 1];
+            scores[pos] = scores[pos - 1];
+            pos--;
+        }
+        found[pos] = node;
+        scores[pos] = score;
+        return count;
+    }
+
+    private int keyFor(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower < TABLE_SIZE && present[lower] ? lower : -1;
+    }
+
+    private float distanceSquared(int key, int sample) {
+        float dx = keyX[key] - pathX[sample];
+        float dy = keyY[key] - pathY[sample];
+        return dx * dx + dy * dy;
+    }
+
+    private static float pathLength(float[] xs, float[] ys, int count) {
+        float length = 0;
+        for (int i = 1; i < count; i++) {
+            float dx = xs[i] - xs[i - 1];
+            float dy = ys[i] - ys[i - 1];
+            length += (float) Math.sqrt(dx * dx + dy * dy);
+        }
+        return length;
+    }
+
+    /**
+     * Resample a polyline to {@link #SAMPLES} points evenly spaced along its length
+     */
+    private static void resample(float[] xs, float[] ys, int count, float[] outX, float[] outY) {
+        float total = pathLength(xs, ys, count);
+        if (count < 2 || total == 0) {
+            for (int i = 0; i < SAMPLES; i++) {
+                outX[i] = xs[0];
+                outY[i] = ys[0];
+            }
+            return;
+        }
+
+        float step = total / (SAMPLES - 1);
+        float travelled = 0;
+        int segment = 1;
+        for (int i = 0; i < SAMPLES; i++) {
+            float target = i == SAMPLES - 1 ? total : i * step;
+            while (segment < count - 1 && travelled + segmentLength(xs, ys, segment) < target) {
+                travelled += segmentLength(xs, ys, segment);
+                segment++;
+            }
+            float length = segmentLength(xs, ys, segment);
+            float t = length > 0 ? Math.min(1f, (target - travelled) / length) : 0f;
+            outX[i] = xs[segment - 1] + (xs[segment] - xs[segment - 1]) * t;
+            outY[i] = ys[segment - 1] + (ys[segment] - ys[segment - 1]) * t;
+        }
+    }
+
+    private static float segmentLength(float[] xs, float[] ys, int segment) {
+        float dx = xs[segment] - xs[segment - 1];
+        float dy = ys[segment] - ys[segment - 1];
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,377 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.util.TypedValue;
+import android.util.Xml;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Immutable key layout parsed from a keyboard XML resource
+ * (res/xml/qwerty.xml, res/xml/selection.xml)
+ */
+public final class KeyboardModel {
+    public static final int KEYCODE_SHIFT = -1;
+    public static final int KEYCODE_DONE = -4;
+    public static final int KEYCODE_DELETE = -5;
+
+    private static final String TAG_KEYBOARD = "Keyboard";
+    private static final String TAG_ROW = "Row";
+    private static final String TAG_KEY = "Key";
+
+    // obtainAttributes needs the attribute IDs in ascending order
+    private static final int[] ATTRS = {
+            android.R.attr.keyWidth,
+            android.R.attr.keyHeight,
+            android.R.attr.horizontalGap,
+            android.R.attr.verticalGap,
+            android.R.attr.codes,
+            android.R.attr.keyLabel,
+            android.R.attr.keyIcon,
+            android.R.attr.isRepeatable,
+            android.R.attr.isModifier,
+            android.R.attr.isSticky,
+    };
+    static {
+        Arrays.sort(ATTRS);
+    }
+
+    /**
+     * A single key, in pixels relative to the top left of the keyboard
+     */
+    public static final class Key {
+        public final int[] codes;
+        public final String label;
+        public final int iconRes;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        public final boolean repeatable;
+        public final boolean modifier;
+        public final boolean sticky;
+
+        Key(int[] codes, String label, int iconRes, int x, int y, int width, int height,
+            boolean repeatable, boolean modifier, boolean sticky) {
+            this.codes = codes;
+            this.label = label;
+            this.iconRes = iconRes;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.repeatable = repeatable;
+            this.modifier = modifier;
+            this.sticky = sticky;
+        }
+
+        public int getCode() {
+            return codes.length > 0 ? codes[0] : 0;
+        }
+
+        /**
+         * Whether the label follows the shift state
+         */
+        public boolean isLetter() {
+            return label != null && label.length() == 1 && Character.isLetter(label.charAt(0));
+        }
+
+        public boolean contains(int px, int py) {
+            return px >= x && px < x + width && py >= y && py < y + height;
+        }
+    }
+
+    // Touch grid: every cell lists the keys a touch inside it can mean
+    private static final int GRID_COLUMNS = 16;
+    private static final int GRID_ROWS = 8;
+    // Keys whose centre is further than this many key widths from a cell are never candidates
+    private static final float PROXIMITY = 1.4f;
+    // Standard deviation of touch offsets, relative to the key size
+    private static final float SIGMA_RATIO = 0.5f;
+    private static final int[] NO_KEYS = new int[0];
+
+    private final List<Key> keys;
+    private final int width;
+    private final int height;
+
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int[][] grid;
+    private final float[] centerX;
+    private final float[] centerY;
+    // 1 / (2 sigma^2) per key and axis
+    private final float[] spreadX;
+    private final float[] spreadY;
+
+    private KeyboardModel(List<Key> keys, int width, int height) {
+        this.keys = Collections.unmodifiableList(keys);
+        this.width = width;
+        this.height = height;
+
+        int count = keys.size();
+        centerX = new float[count];
+        centerY = new float[count];
+        spreadX = new float[count];
+        spreadY = new float[count];
+        float totalWidth = 0;
+        for (int i = 0; i < count; i++) {
+            Key key = keys.get(i);
+            centerX[i] = key.x + key.width / 2f;
+            centerY[i] = key.y + key.height / 2f;
+            float sigmaX = Math.max(1f, key.width * SIGMA_RATIO);
+            float sigmaY = Math.max(1f, key.height * SIGMA_RATIO);
+            spreadX[i] = 1f / (2f * sigmaX * sigmaX);
+            spreadY[i] = 1f / (2f * sigmaY * sigmaY);
+            totalWidth += key.width;
+        }
+
+        cellWidth = Math.max(1, (width + GRID_COLUMNS - 1) / GRID_COLUMNS);
+        cellHeight = Math.max(1, (height + GRID_ROWS - 1) / GRID_ROWS);
+        float proximity = count > 0 ? totalWidth / count * PROXIMITY : 0;
+        float proximitySquared = proximity * proximity;
+        grid = new int[GRID_COLUMNS * GRID_ROWS][];
+        int[] candidates = new int[count];
+        for (int row = 0; row < GRID_ROWS; row++) {
+            for (int column = 0; column < GRID_COLUMNS; column++) {
+                int left = column * cellWidth;
+                int top = row * cellHeight;
+                int found = 0;
+                for (int i = 0; i < count; i++) {
+                    Key key = keys.get(i);
+                    boolean overlaps = key.x < left + cellWidth && key.x + key.width > left
+                            && key.y < top + cellHeight && key.y + key.height > top;
+                    float dx = Math.max(0, Math.max(left - centerX[i], centerX[i] - (left + cellWidth)));
+                    float dy = Math.max(0, Math.max(top - centerY[i], centerY[i] - (top + cellHeight)));
+                    if (overlaps || dx * dx + dy * dy <= proximitySquared) {
+                        candidates[found++] = i;
+                    }
+                }
+                grid[row * GRID_COLUMNS + column] = found == 0 ? NO_KEYS : Arrays.copyOf(candidates, found);
+            }
+        }
+    }
+
+    public List<Key> getKeys() {
+        return keys;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Index of the key under a point, or -1
+     */
+    public int indexOfKeyAt(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return -1;
+        for (int index : cellAt(x, y)) {
+            if (keys.get(index).contains(x, y)) return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Probability of each nearby key being the one meant by a touch, from a
+     * Gaussian around every key centre. Only the keys of the touched grid
+     * cell are scored, so the cost does not depend on the layout size.
+     * @param keyIndices Receives key indices, most likely first
+     * @param probabilities Receives the matching probabilities, summing to 1
+     * @return Number of entries written, at most the length of the arrays
+     */
+    public int getKeyProbabilities(int x, int y, int[] keyIndices, float[] probabilities) {
+        int[] cell = cellAt(x, y);
+        int limit = Math.min(keyIndices.length, probabilities.length);
+        int count = 0;
+        float total = 0;
+        for (int index : cell) {
+            float dx = x - centerX[index];
+            float dy = y - centerY[index];
+            float likelihood = (float) Math.exp(-(dx * dx * spreadX[index] + dy * dy * spreadY[index]));
+            total += likelihood;
+
+            // Insertion into the sorted output, dropping the least likely past the limit
+            int pos = count < limit ? count++ : limit;
+            while (pos > 0 && probabilities[pos - 1] < likelihood) {
+                if (pos < limit) {
+                    probabilities[pos] = probabilities[pos - 1];
+                    keyIndices[pos] = keyIndices[pos - 1];
+                }
+                pos--;
+            }
+            if (pos < limit) {
+                probabilities[pos] = likelihood;
+                keyIndices[pos] = index;
+            }
+        }
+        if (total > 0) {
+            for (int i = 0; i < count; i++) {
+                probabilities[i] /= total;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Most keys a single touch can be scored against
+     */
+    public int getMaxNearbyKeys() {
+        int max = 0;
+        for (int[] cell : grid) {
+            max = Math.max(max, cell.length);
+        }
+        return max;
+    }
+
+    private int[] cellAt(int x, int y) {
+        int column = Math.min(GRID_COLUMNS - 1, Math.max(0, x / cellWidth));
+        int row = Math.min(GRID_ROWS - 1, Math.max(0, y / cellHeight));
+        return grid[row * GRID_COLUMNS + column];
+    }
+
+    /**
+     * Parse a keyboard resource, sizing percentage widths against {@code width}
+     */
+    public static KeyboardModel parse(Context context, int xmlRes, int width) {
+        Resources res = context.getResources();
+        List<Key> keys = new ArrayList<>();
+
+        int defaultKeyWidth = width / 10;
+        int defaultKeyHeight = defaultKeyWidth;
+        int defaultHorizontalGap = 0;
+        int defaultVerticalGap = 0;
+
+        int rowKeyWidth = 0;
+        int rowKeyHeight = 0;
+        int rowHorizontalGap = 0;
+        int rowVerticalGap = 0;
+
+        int x = 0;
+        int y = 0;
+        boolean inRow = false;
+
+        XmlResourceParser parser = res.getXml(xmlRes);
+        try {
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG) {
+                    String tag = parser.getName();
+                    TypedArray a = res.obtainAttributes(Xml.asAttributeSet(parser), ATTRS);
+                    try {
+                        if (TAG_KEYBOARD.equals(tag)) {
+                            defaultKeyWidth = size(a, android.R.attr.keyWidth, width, defaultKeyWidth);
+                            defaultKeyHeight = size(a, android.R.attr.keyHeight, width, defaultKeyHeight);
+                            defaultHorizontalGap = size(a, android.R.attr.horizontalGap, width, 0);
+                            defaultVerticalGap = size(a, android.R.attr.verticalGap, width, 0);
+                        } else if (TAG_ROW.equals(tag)) {
+                            inRow = true;
+                            x = 0;
+                            rowKeyWidth = size(a, android.R.attr.keyWidth, width, defaultKeyWidth);
+                            rowKeyHeight = size(a, android.R.attr.keyHeight, width, defaultKeyHeight);
+                            rowHorizontalGap = size(a, android.R.attr.horizontalGap, width, defaultHorizontalGap);
+                            rowVerticalGap = size(a, android.R.attr.verticalGap, width, defaultVerticalGap);
+                        } else if (TAG_KEY.equals(tag) && inRow) {
+                            int keyWidth = size(a, android.R.attr.keyWidth, width, rowKeyWidth);
+                            int keyHeight = size(a, android.R.attr.keyHeight, width, rowKeyHeight);
+                            x += size(a, android.R.attr.horizontalGap, width, rowHorizontalGap);
+
+                            CharSequence label = a.getText(index(android.R.attr.keyLabel));
+                            String labelText = label != null ? label.toString() : null;
+                            keys.add(new Key(
+                                    codes(a, labelText),
+                                    labelText,
+                                    a.getResourceId(index(android.R.attr.keyIcon), 0),
+                                    x, y, keyWidth, keyHeight,
+                                    a.getBoolean(index(android.R.attr.isRepeatable), false),
+                                    a.getBoolean(index(android.R.attr.isModifier), false),
+                                    a.getBoolean(index(android.R.attr.isSticky), false)));
+                            x += keyWidth;
+                        }
+                    } finally {
+                        a.recycle();
+                    }
+                } else if (event == XmlPullParser.END_TAG && TAG_ROW.equals(parser.getName())) {
+                    inRow = false;
+                    y += rowKeyHeight + rowVerticalGap;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            parser.close();
+        }
+
+        return new KeyboardModel(keys, width, Math.max(0, y - rowVerticalGap));
+    }
+
+    private static int index(int attr) {
+        return Arrays.binarySearch(ATTRS, attr);
+    }
+
+    /**
+     * Read a dimension ("50dp") or a fraction of the keyboard width ("10%p")
+     */
+    private static int size(TypedArray a, int attr, int base, int defValue) {
+        int index = index(attr);
+        TypedValue value = a.peekValue(index);
+        if (value == null) return defValue;
+        if (value.type == TypedValue.TYPE_DIMENSION) {
+            return a.getDimensionPixelOffset(index, defValue);
+        }
+        if (value.type == TypedValue.TYPE_FRACTION) {
+            return Math.round(a.getFraction(index, base, base, defValue));
+        }
+        return defValue;
+    }
+
+    /**
+     * Read "codes" as a single int or a comma separated list, defaulting to the label's first character
+     */
+    private static int[] codes(TypedArray a, String label) {
+        TypedValue value = a.peekValue(index(android.R.attr.codes));
+        if (value != null) {
+            if (value.type == TypedValue.TYPE_INT_DEC || value.type == TypedValue.TYPE_INT_HEX) {
+                return new int[]{value.data};
+            }
+            if (value.type == TypedValue.TYPE_STRING && value.string != null) {
+                String[] parts = value.string.toString().split(",");
+                int[] codes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    codes[i] = Integer.parseInt(parts[i].trim());
+                }
+                return codes;
+            }
+        }
+        if (label != null && label.length() > 0) {
+            return new int[]{label.charAt(0)};
+        }
+        return new int[0];
+    }
+}
@@ -0,0 +1,646 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import androidx.annotation.RequiresApi;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keyboard renderer that replaces the deprecated KeyboardView. Keys come
+ * from an immutable {@link KeyboardModel}. On hardware-accelerated canvases
+ * (API 29+) each key is recorded into its own RenderNode and only keys whose
+ * look changed are re-recorded, so a shift toggle or key press never redraws
+ * the whole board.
+ */
+public class KeyboardRenderView extends View {
+
+    /**
+     * Key and gesture events, same contract as KeyboardView's listener
+     */
+    public interface OnKeyActionListener {
+        void onPress(int primaryCode);
+        void onRelease(int primaryCode);
+        void onKey(int primaryCode, int[] keyCodes);
+        void onText(CharSequence text);
+        void swipeLeft();
+        void swipeRight();
+        void swipeDown();
+        void swipeUp();
+        /**
+         * A glide over the letter keys ended
+         * @param xs Path x coordinates relative to the keyboard
+         * @param ys Path y coordinates relative to the keyboard
+         * @param count Number of points
+         */
+        void onGlide(float[] xs, float[] ys, int count);
+    }
+
+    private static final int[] PRESSED_STATE = {android.R.attr.state_pressed};
+    private static final int[] NORMAL_STATE = {};
+    private static final long REPEAT_START_DELAY_MS = 400;
+    private static final long REPEAT_INTERVAL_MS = 50;
+    // A drag turns into a glide once it leaves the key by this many key widths
+    private static final float GLIDE_START_RATIO = 0.5f;
+
+    private KeyboardModel keyboard;
+    private OnKeyActionListener listener;
+
+    private Drawable keyBackground;
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint smallLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final SparseArray<Drawable> icons = new SparseArray<>();
+    private final int keyGap;
+
+    // Labels per key, precomputed for both shift states
+    private String[] labels = new String[0];
+    private String[] shiftedLabels = new String[0];
+    private boolean shifted;
+
+    // Per-key display lists (API 29+), re-recorded only when dirty
+    private Object[] keyNodes = new Object[0];
+    private boolean[] dirty = new boolean[0];
+
+    private int pressedIndex = -1;
+    // Pointer the pressed key follows; other fingers are ignored until it lifts
+    private int activePointerId = -1;
+    private boolean multiTouch;
+    private int touchX;
+    private int touchY;
+    // Key probabilities of the last tap, most likely first
+    private int[] touchKeys = new int[0];
+    private int[] touchCodes = new int[0];
+    private float[] touchProbabilities = new float[0];
+    private int touchCount;
+    private boolean repeating;
+    private boolean swiped;
+
+    // Glide input, started by dragging away from a letter key
+    private boolean glideEnabled;
+    private boolean gliding;
+    private int downX;
+    private int downY;
+    private float[] glideX = new float[128];
+    private float[] glideY = new float[128];
+    private int glideCount;
+    private int glideStartCode;
+    private final Path glideTrail = new Path();
+    private final Paint trailPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final GestureDetector gestureDetector;
+    private final int swipeThreshold;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable repeatTask = new Runnable() {
+        @Override
+        public void run() {
+            if (pressedIndex >= 0) {
+                sendKey(pressedIndex);
+                handler.postDelayed(this, REPEAT_INTERVAL_MS);
+            }
+        }
+    };
+
+    public KeyboardRenderView(Context context) {
+        this(context, null);
+    }
+
+    public KeyboardRenderView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        keyBackground = getResources().getDrawable(R.drawable.key_bg_modern);
+        int textColor = getResources().getColor(R.color.keyTextColor);
+
+        labelPaint.setTextAlign(Paint.Align.CENTER);
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 18,
+                getResources().getDisplayMetrics()));
+        labelPaint.setColor(textColor);
+        smallLabelPaint.setTextAlign(Paint.Align.CENTER);
+        smallLabelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 8,
+                getResources().getDisplayMetrics()));
+        smallLabelPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        smallLabelPaint.setColor(textColor);
+
+        float density = getResources().getDisplayMetrics().density;
+        keyGap = Math.round(3 * density);
+        trailPaint.setStyle(Paint.Style.STROKE);
+        trailPaint.setStrokeWidth(4 * density);
+        trailPaint.setStrokeCap(Paint.Cap.ROUND);
+        trailPaint.setStrokeJoin(Paint.Join.ROUND);
+        trailPaint.setColor(textColor);
+        trailPaint.setAlpha(128);
+        swipeThreshold = Math.round(500 * density);
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                return e1 != null && handleFling(e1, e2, velocityX, velocityY);
+            }
+        });
+    }
+
+    public void setOnKeyActionListener(OnKeyActionListener listener) {
+        this.listener = listener;
+    }
+
+    public void setKeyboard(KeyboardModel keyboard) {
+        releaseNodes();
+        this.keyboard = keyboard;
+
+        List<KeyboardModel.Key> keys = keyboard.getKeys();
+        labels = new String[keys.size()];
+        shiftedLabels = new String[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            KeyboardModel.Key key = keys.get(i);
+            labels[i] = key.label;
+            shiftedLabels[i] = key.isLetter() ? key.label.toUpperCase(Locale.getDefault()) : key.label;
+        }
+        keyNodes = new Object[keys.size()];
+        dirty = new boolean[keys.size()];
+        pressedIndex = -1;
+
+        int nearby = keyboard.getMaxNearbyKeys();
+        touchKeys = new int[nearby];
+        touchCodes = new int[nearby];
+        touchProbabilities = new float[nearby];
+        touchCount = 0;
+
+        requestLayout();
+        invalidateAllKeys();
+    }
+
+    /**
+     * Let drags that start on a letter key spell words instead of pressing keys
+     */
+    public void setGlideEnabled(boolean enabled) {
+        glideEnabled = enabled;
+        if (!enabled) resetGlide();
+    }
+
+    public KeyboardModel getKeyboard() {
+        return keyboard;
+    }
+
+    /**
+     * Switch letter labels between cases, redrawing only the letter keys
+     */
+    public void setShifted(boolean shifted) {
+        if (this.shifted == shifted || keyboard == null) return;
+        this.shifted = shifted;
+        List<KeyboardModel.Key> keys = keyboard.getKeys();
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).isLetter()) {
+                dirty[i] = true;
+            }
+        }
+        invalidate();
+    }
+
+    public boolean isShifted() {
+        return shifted;
+    }
+
+    /**
+     * Number of keys scored for the last tap
+     */
+    public int getTouchCount() {
+        return touchCount;
+    }
+
+    /**
+     * Primary codes of the keys scored for the last tap, most likely first.
+     * Valid up to {@link #getTouchCount()} until the next key event.
+     */
+    public int[] getTouchCodes() {
+        return touchCodes;
+    }
+
+    /**
+     * Probabilities matching {@link #getTouchCodes()}, summing to 1
+     */
+    public float[] getTouchProbabilities() {
+        return touchProbabilities;
+    }
+
+    public void setKeyBackground(Drawable background) {
+        keyBackground = background;
+        invalidateAllKeys();
+    }
+
+    public void setKeyTextColor(int color) {
+        labelPaint.setColor(color);
+        smallLabelPaint.setColor(color);
+        invalidateAllKeys();
+    }
+
+    public void invalidateAllKeys() {
+        for (int i = 0; i < dirty.length; i++) {
+            dirty[i] = true;
+        }
+        invalidate();
+    }
+
+    public void invalidateKey(int index) {
+        if (index < 0 || index >= dirty.length) return;
+        dirty[index] = true;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (keyboard == null) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        int width = keyboard.getWidth() + getPaddingLeft() + getPaddingRight();
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            width = MeasureSpec.getSize(widthMeasureSpec);
+        }
+        setMeasuredDimension(width, keyboard.getHeight() + getPaddingTop() + getPaddingBottom());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (keyboard == null) return;
+
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && canvas.isHardwareAccelerated()) {
+            drawKeyNodes(canvas);
+        } else {
+            List<KeyboardModel.Key> keys = keyboard.getKeys();
+            for (int i = 0; i < keys.size(); i++) {
+                KeyboardModel.Key key = keys.get(i);
+                canvas.save();
+                canvas.translate(key.x, key.y);
+                drawKey(canvas, i, key);
+                canvas.restore();
+                dirty[i] = false;
+            }
+        }
+        if (gliding) {
+            canvas.drawPath(glideTrail, trailPaint);
+        }
+        canvas.restore();
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void drawKeyNodes(Canvas canvas) {
+        List<KeyboardModel.Key> keys = keyboard.getKeys();
+        for (int i = 0; i < keys.size(); i++) {
+            KeyboardModel.Key key = keys.get(i);
+            RenderNode node = (RenderNode) keyNodes[i];
+            if (node == null) {
+                node = new RenderNode("key");
+                node.setPosition(key.x, key.y, key.x + key.width, key.y + key.height);
+                keyNodes[i] = node;
+                dirty[i] = true;
+            }
+            if (dirty[i] || !node.hasDisplayList()) {
+                RecordingCanvas recording = node.beginRecording();
+                try {
+                    drawKey(recording, i, key);
+                } finally {
+                    node.endRecording();
+                }
+                dirty[i] = false;
+            }
+            canvas.drawRenderNode(node);
+        }
+    }
+
+    /**
+     * Draw one key at the canvas origin
+     */
+    private void drawKey(Canvas canvas, int index, KeyboardModel.Key key) {
+        if (keyBackground != null) {
+            keyBackground.setState(index == pressedIndex ? PRESSED_STATE : NORMAL_STATE);
+            keyBackground.setBounds(keyGap, keyGap, key.width - keyGap, key.height - keyGap);
+            keyBackground.draw(canvas);
+        }
+
+        if (key.iconRes != 0) {
+            Drawable icon = getIcon(key.iconRes);
+            int iconWidth = Math.min(icon.getIntrinsicWidth(), key.width - keyGap * 2);
+            int iconHeight = Math.min(icon.getIntrinsicHeight(), key.height - keyGap * 2);
+            int left = (key.width - iconWidth) / 2;
+            int top = (key.height - iconHeight) / 2;
+            icon.setBounds(left, top, left + iconWidth, top + iconHeight);
+            icon.draw(canvas);
+        } else {
+            String label = shifted ? shiftedLabels[index] : labels[index];
+            if (label == null) return;
+            Paint paint = label.length() > 1 ? smallLabelPaint : labelPaint;
+            float baseline = (key.height + paint.getTextSize() - paint.descent()) / 2f;
+            canvas.drawText(label, key.width / 2f, baseline, paint);
+        }
+    }
+
+    private Drawable getIcon(int res) {
+        Drawable icon = icons.get(res);
+        if (icon == null) {
+            icon = getResources().getDrawable(res);
+            icons.put(res, icon);
+        }
+        return icon;
+    }
+
+    private void releaseNodes() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            for (Object node : keyNodes) {
+                if (node != null) {
+                    ((RenderNode) node).discardDisplayList();
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        handler.removeCallbacks(repeatTask);
+        releaseNodes();
+        keyNodes = new Object[keyNodes.length];
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (keyboard == null) return false;
+
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_CANCEL) {
+            if (!multiTouch) gestureDetector.onTouchEvent(event);
+            stopRepeat();
+            resetGlide();
+            setPressedIndex(-1);
+            activePointerId = -1;
+            return true;
+        }
+        if (action == MotionEvent.ACTION_DOWN) {
+            activePointerId = event.getPointerId(0);
+            multiTouch = false;
+        } else if (action == MotionEvent.ACTION_POINTER_DOWN) {
+            // Swipes and glides are single finger gestures
+            if (!multiTouch) {
+                multiTouch = true;
+                MotionEvent cancel = MotionEvent.obtain(event);
+                cancel.setAction(MotionEvent.ACTION_CANCEL);
+                gestureDetector.onTouchEvent(cancel);
+                cancel.recycle();
+            }
+            if (gliding) return true;
+            // A second finger landed before the first lifted: send the pressed key and follow the new one
+            releasePressedKey();
+            activePointerId = event.getPointerId(event.getActionIndex());
+        }
+
+        int pointerIndex = event.findPointerIndex(activePointerId);
+        if (pointerIndex < 0) return true;
+        if ((action == MotionEvent.ACTION_POINTER_UP || action == MotionEvent.ACTION_UP)
+                && event.getActionIndex() != pointerIndex) {
+            return true;
+        }
+
+        int x = (int) event.getX(pointerIndex) - getPaddingLeft();
+        int y = (int) event.getY(pointerIndex) - getPaddingTop();
+        touchX = x;
+        touchY = y;
+        if (gliding) {
+            return onGlideEvent(event, pointerIndex);
+        }
+
+        if (!multiTouch && gestureDetector.onTouchEvent(event)) {
+            swiped = true;
+            stopRepeat();
+            resetGlide();
+            setPressedIndex(-1);
+            return true;
+        }
+
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN: {
+                swiped = false;
+                resetGlide();
+                int index = keyboard.indexOfKeyAt(x, y);
+                setPressedIndex(index);
+                if (index >= 0) {
+                    KeyboardModel.Key key = keyboard.getKeys().get(index);
+                    if (listener != null) listener.onPress(key.getCode());
+                    if (glideEnabled && key.isLetter() && !multiTouch) {
+                        downX = x;
+                        downY = y;
+                        addGlidePoints(event, pointerIndex);
+                    }
+                    if (key.repeatable) {
+                        repeating = true;
+                        sendKey(index);
+                        handler.postDelayed(repeatTask, REPEAT_START_DELAY_MS);
+                    }
+                }
+                return true;
+            }
+
+            case MotionEvent.ACTION_MOVE: {
+                if (glideCount > 0 && pressedIndex >= 0) {
+                    addGlidePoints(event, pointerIndex);
+                    float distance = (float) Math.hypot(x - downX, y - downY);
+                    if (keyboard.indexOfKeyAt(x, y) != pressedIndex
+                            && distance > GLIDE_START_RATIO * keyboard.getKeys().get(pressedIndex).width) {
+                        startGlide();
+                        return true;
+                    }
+                }
+                if (!repeating && !swiped) {
+                    setPressedIndex(keyboard.indexOfKeyAt(x, y));
+                }
+                return true;
+            }
+
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                releasePressedKey();
+                activePointerId = -1;
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    /**
+     * Send the pressed key as a tap, unless it already repeated or was swiped, and release it
+     */
+    private void releasePressedKey() {
+        int index = pressedIndex;
+        boolean wasRepeating = repeating;
+        stopRepeat();
+        resetGlide();
+        setPressedIndex(-1);
+        if (index >= 0 && !swiped) {
+            if (!wasRepeating) sendTap(index);
+            if (listener != null) listener.onRelease(keyboard.getKeys().get(index).getCode());
+        }
+    }
+
+    private boolean onGlideEvent(MotionEvent event, int pointerIndex) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                addGlidePoints(event, pointerIndex);
+                invalidate();
+                return true;
+
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                addGlidePoints(event, pointerIndex);
+                if (listener != null) {
+                    listener.onRelease(glideStartCode);
+                    listener.onGlide(Arrays.copyOf(glideX, glideCount), Arrays.copyOf(glideY, glideCount),
+                            glideCount);
+                }
+                resetGlide();
+                activePointerId = -1;
+                return true;
+        }
+        return true;
+    }
+
+    private void startGlide() {
+        glideStartCode = keyboard.getKeys().get(pressedIndex).getCode();
+        gliding = true;
+        setPressedIndex(-1);
+        invalidate();
+    }
+
+    private void resetGlide() {
+        if (gliding) invalidate();
+        gliding = false;
+        glideCount = 0;
+        glideTrail.rewind();
+    }
+
+    /**
+     * Append the pointer's position, including points batched since the last event
+     */
+    private void addGlidePoints(MotionEvent event, int pointerIndex) {
+        int history = event.getHistorySize();
+        for (int i = 0; i < history; i++) {
+            addGlidePoint(event.getHistoricalX(pointerIndex, i) - getPaddingLeft(),
+                    event.getHistoricalY(pointerIndex, i) - getPaddingTop());
+        }
+        addGlidePoint(event.getX(pointerIndex) - getPaddingLeft(), event.getY(pointerIndex) - getPaddingTop());
+    }
+
+    private void addGlidePoint(float x, float y) {
+        if (glideCount == glideX.length) {
+            glideX = Arrays.copyOf(glideX, glideCount * 2);
+            glideY = Arrays.copyOf(glideY, glideCount * 2);
+        }
+        glideX[glideCount] = x;
+        glideY[glideCount] = y;
+        if (glideCount == 0) {
+            glideTrail.moveTo(x, y);
+        } else {
+            glideTrail.lineTo(x, y);
+        }
+        glideCount++;
+    }
+
+    private void sendKey(int index) {
+        if (listener == null) return;
+        KeyboardModel.Key key = keyboard.getKeys().get(index);
+        listener.onKey(key.getCode(), key.codes);
+    }
+
+    /**
+     * Send a tapped key along with the nearby keys it may have been meant
+     * as, ordered by touch probability
+     */
+    private void sendTap(int index) {
+        if (listener == null) return;
+        KeyboardModel.Key key = keyboard.getKeys().get(index);
+        touchCount = keyboard.getKeyProbabilities(touchX, touchY, touchKeys, touchProbabilities);
+
+        int[] keyCodes = new int[key.codes.length + touchCount];
+        System.arraycopy(key.codes, 0, keyCodes, 0, key.codes.length);
+        int codeCount = key.codes.length;
+        for (int i = 0; i < touchCount; i++) {
+            int code = keyboard.getKeys().get(touchKeys[i]).getCode();
+            touchCodes[i] = code;
+            if (touchKeys[i] != index && code > 0) {
+                keyCodes[codeCount++] = code;
+            }
+        }
+        listener.onKey(key.getCode(), codeCount == keyCodes.length ? keyCodes : Arrays.copyOf(keyCodes, codeCount));
+    }
+
+    private void stopRepeat() {
+        repeating = false;
+        handler.removeCallbacks(repeatTask);
+    }
+
+    private void setPressedIndex(int index) {
+        if (index == pressedIndex) return;
+        int previous = pressedIndex;
+        pressedIndex = index;
+        invalidateKey(previous);
+        invalidateKey(index);
+    }
+
+    /**
+     * Same thresholds as KeyboardView: a fast fling across half the board
+     */
+    private boolean handleFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+        if (listener == null) return false;
+        float absX = Math.abs(velocityX);
+        float absY = Math.abs(velocityY);
+        float deltaX = e2.getX() - e1.getX();
+        float deltaY = e2.getY() - e1.getY();
+        int travelX = getWidth() / 2;
+        int travelY = getHeight() / 2;
+
+        if (velocityX > swipeThreshold && absY < absX && deltaX > travelX) {
+            listener.swipeRight();
+            return true;
+        } else if (velocityX < -swipeThreshold && absY < absX && deltaX < -travelX) {
+            listener.swipeLeft();
+            return true;
+        } else if (velocityY < -swipeThreshold && absX < absY && deltaY < -travelY) {
+            listener.swipeUp();
+            return true;
+        } else if (velocityY > swipeThreshold && absX < absY / 2 && deltaY > travelY) {
+            listener.swipeDown();
+            return true;
+        }
+        return false;
+    }
+}
@@ -24,6 +24,9 @@ public class LanguageManager {
     private static final String KEY_TRANSLATE_ENABLED = "translate_enabled";
     private static final String KEY_TRANSLATE_LANGUAGE = "translate_language";
     private static final String KEY_THEME = "theme";
+    private static final String KEY_DICTIONARY_STORAGE = "dictionary_storage";
+    private static final String KEY_DICTIONARY_LOCATION = "dictionary_location";
+    private static final String KEY_GLIDE_TYPING = "glide_typing";
     
     private SharedPreferences prefs;
     
@@ -31,6 +34,9 @@ public class LanguageManager {
     public static final String THEME_DARK = "dark";
     public static final String THEME_AUTO = "auto";
     
+    public static final String STORAGE_BINARY = "binary";
+    public static final String STORAGE_ROOM = "room";
+    
     public LanguageManager(Context context) {
         this.prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
     }
@@ -113,6 +119,49 @@ public class LanguageManager {
         return prefs.getString(KEY_THEME, THEME_AUTO);
     }
     
+    /**
+     * Set where learned words are stored
+     */
+    public void setDictionaryStorage(String storage) {
+        prefs.edit().putString(KEY_DICTIONARY_STORAGE, storage).apply();
+    }
+    
+    /**
+     * Get where learned words are stored
+     */
+    public String getDictionaryStorage() {
+        return prefs.getString(KEY_DICTIONARY_STORAGE, STORAGE_BINARY);
+    }
+    
+    /**
+     * Set where learned words currently are
+     */
+    public void setDictionaryLocation(String storage) {
+        prefs.edit().putString(KEY_DICTIONARY_LOCATION, storage).apply();
+    }
+    
+    /**
+     * Get where learned words currently are. Differs from the chosen
+     * storage until the words have been moved after a switch.
+     */
+    public String getDictionaryLocation() {
+        return prefs.getString(KEY_DICTIONARY_LOCATION, STORAGE_BINARY);
+    }
+    
+    /**
+     * Enable/disable glide typing
+     */
+    public void setGlideTypingEnabled(boolean enabled) {
+        prefs.edit().putBoolean(KEY_GLIDE_TYPING, enabled).apply();
+    }
+    
+    /**
+     * Check if glide typing is enabled
+     */
+    public boolean isGlideTypingEnabled() {
+        return prefs.getBoolean(KEY_GLIDE_TYPING, false);
+    }
+    
     /**
      * Check if dark mode is enabled
      */
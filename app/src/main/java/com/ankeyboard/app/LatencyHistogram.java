@@ -0,0 +1,89 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+/**
+ * Latency histogram with logarithmic buckets from 1 ms to about 55 s.
+ * Each bucket is a quarter power of two wide, so percentiles are exact to
+ * within 19%, at a fixed 64 counters.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private static final int STEPS_PER_DOUBLING = 4;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+    private long maxMillis;
+
+    public synchronized void record(long millis) {
+        counts[bucketOf(millis)]++;
+        total++;
+        maxMillis = Math.max(maxMillis, millis);
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, in milliseconds
+     * @param percentile 0 to 100
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // The last bucket is open ended
+                return i == BUCKETS - 1 ? maxMillis : Math.min(upperBound(i), maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = 0;
+        }
+        total = 0;
+        maxMillis = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + total + " p50=" + getPercentile(50) + "ms p99=" + getPercentile(99)
+                + "ms max=" + maxMillis + "ms";
+    }
+
+    private static int bucketOf(long millis) {
+        if (millis <= 1) return 0;
+        int bucket = (int) Math.ceil(Math.log(millis) / Math.log(2) * STEPS_PER_DOUBLING);
+        return Math.min(BUCKETS - 1, bucket);
+    }
+
+    private static long upperBound(int bucket) {
+        return (long) Math.ceil(Math.pow(2, bucket / (double) STEPS_PER_DOUBLING));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+/**
+ * A learned word row in {@link WordDatabase}. The (language, word) primary
+ * key doubles as the index for prefix range queries.
+ */
+@Entity(tableName = "learned_words", primaryKeys = {"language", "word"})
+public class LearnedWord {
+    @NonNull
+    public String language = "";
+
+    @NonNull
+    public String word = "";
+
+    public int frequency;
+
+    public long lastUsed;
+}
@@ -0,0 +1,49 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface LearnedWordDao {
+
+    /**
+     * Same as {@code word LIKE 'ab%'}, written as a key range so SQLite can
+     * seek the primary key index instead of scanning the table
+     */
+    @Query("SELECT * FROM learned_words WHERE language = :language AND word >= :low AND word < :high "
+            + "ORDER BY frequency DESC LIMIT :limit")
+    List<LearnedWord> findByPrefix(String language, String low, String high, int limit);
+
+    @Query("SELECT frequency FROM learned_words WHERE language = :language AND word = :word")
+    Integer getFrequency(String language, String word);
+
+    @Query("SELECT * FROM learned_words WHERE language = :language ORDER BY frequency DESC LIMIT :limit")
+    List<LearnedWord> findMostFrequent(String language, int limit);
+
+    @Query("SELECT * FROM learned_words WHERE language = :language")
+    List<LearnedWord> findAll(String language);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<LearnedWord> words);
+}
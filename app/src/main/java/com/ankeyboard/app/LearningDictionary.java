@@ -19,65 +19,538 @@
 package com.ankeyboard.app;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Learned words, predictions and corrections. Methods are synchronized
+ * because predictions run on {@link PredictionWorker}'s thread while
+ * learning happens on the main thread; store queries and disk reads run
+ * without the lock.
+ */
 public class LearningDictionary {
-    private SharedPreferences prefs;
-    private static final String PREF_NAME = "AnKeyboard_Brain";
+    private static final int MAX_PREDICTIONS = 10;
+    // Shorter input has too many neighbours to correct usefully
+    private static final int MIN_CORRECTION_LENGTH = 3;
+    // Most frequent words offered as corrections, keeps the deletion index at a few MB
+    private static final int MAX_CORRECTION_WORDS = 16000;
+    private static final long FLUSH_DELAY_MS = 5000;
+    private static final int FLUSH_THRESHOLD = 32;
+    private static final String BIGRAM_FILE = "AnKeyboard_Bigrams.bin";
+    // New pairs before a routine flush also rewrites the bigram file
+    private static final int BIGRAM_SAVE_THRESHOLD = 256;
+
+    private final Context context;
+    private final LanguageManager languageManager;
+    private final DictionaryStore store;
+    // Every word for stores without a prefix index, otherwise the most frequent stored words plus this session's
+    private final WordTrie index = new WordTrie();
+    // Words learned with a prefix-index store whose stored frequency is not added yet
+    private final Set<String> unresolvedWords = new HashSet<>();
+    // Whether loadStoredWords has indexed the store's words
+    private boolean storedWordsLoaded;
+    // The words are still in Room after switching back to the binary store
+    private final boolean movingFromRoom;
+    // Deletion variants of the indexed words, for typo correction. Null until built.
+    private DeletionIndex typoIndex;
+    // Words learned before the deletion index was ready
+    private final List<String> unindexedWords = new ArrayList<>();
+    // Ranks corrections by how close the mistyped keys are, if a layout is known
+    private SpatialErrorModel spatialModel;
+    private final PredictionCache cache = new PredictionCache();
+    // Words learned since the last flush, with their latest frequency
+    private final Map<String, Integer> dirty = new HashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::flush;
+
+    // This session's pairs until loadStoredWords merges in the saved ones
+    private BigramModel bigrams = new BigramModel();
+    private final File bigramFile;
+    private int unsavedBigrams;
+    // Saves copies of the bigram model off the main thread, in order
+    private final ExecutorService bigramWriter = Executors.newSingleThreadExecutor();
 
     public LearningDictionary(Context context) {
-        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this(context, new LanguageManager(context).getDictionaryStorage());
+    }
+
+    /**
+     * @param storage {@link LanguageManager#STORAGE_BINARY} or {@link LanguageManager#STORAGE_ROOM}
+     */
+    public LearningDictionary(Context context, String storage) {
+        this.context = context.getApplicationContext();
+        languageManager = new LanguageManager(context);
+        boolean wordsInRoom = LanguageManager.STORAGE_ROOM.equals(languageManager.getDictionaryLocation());
+        if (LanguageManager.STORAGE_ROOM.equals(storage)) {
+            RoomDictionaryStore roomStore = new RoomDictionaryStore(context);
+            if (!wordsInRoom) {
+                roomStore.importBinaryDictionary(this.context,
+                        () -> languageManager.setDictionaryLocation(LanguageManager.STORAGE_ROOM));
+            }
+            store = roomStore;
+            movingFromRoom = false;
+        } else {
+            store = new BinaryDictionaryStore(context);
+            movingFromRoom = wordsInRoom;
+        }
+
+        bigramFile = new File(context.getFilesDir(), BIGRAM_FILE);
     }
 
-    public void learnWord(String word) {
+    public synchronized void learnWord(String word) {
         if (word == null || word.trim().length() < 2) return; // Abaikan kata terlalu pendek
         
         String key = word.toLowerCase().trim();
         
-        int currentFreq = prefs.getInt(key, 0);
+        if ((!storedWordsLoaded || store.hasPrefixIndex()) && index.getFrequency(key) == 0) {
+            // The prediction thread adds the stored frequency: the words are still loading
+            // there, or the store is Room, which does not allow queries here
+            unresolvedWords.add(key);
+        }
+        int newFreq = index.increment(key);
+        if (typoIndex == null) {
+            unindexedWords.add(key);
+        } else if (typoIndex.size() < MAX_CORRECTION_WORDS) {
+            typoIndex.add(key);
+        }
+        cache.invalidate(key);
         
-        prefs.edit().putInt(key, currentFreq + 1).apply();
+        dirty.put(key, newFreq);
+        if (dirty.size() >= FLUSH_THRESHOLD) {
+            flush();
+        } else {
+            handler.removeCallbacks(flushTask);
+            handler.postDelayed(flushTask, FLUSH_DELAY_MS);
+        }
     }
 
-    public List<String> getPredictions(String composingText) {
-        String prefix = composingText.toLowerCase();
-        List<Map.Entry<String, ?>> allWords = new ArrayList<>(prefs.getAll().entrySet());
-        List<Map.Entry<String, ?>> matches = new ArrayList<>();
+    /**
+     * Learn that {@code word} was typed right after {@code previous}
+     */
+    public synchronized void learnBigram(String previous, String word) {
+        if (previous == null || word == null) return;
 
-        for (Map.Entry<String, ?> entry : allWords) {
-            if (entry.getValue() instanceof Integer) {
-                if (entry.getKey().startsWith(prefix)) {
-                    matches.add(entry);
-                }
+        String from = previous.toLowerCase().trim();
+        String to = word.toLowerCase().trim();
+        if (from.isEmpty() || to.isEmpty()) return;
+
+        bigrams.learn(from, to);
+        unsavedBigrams++;
+        handler.removeCallbacks(flushTask);
+        handler.postDelayed(flushTask, FLUSH_DELAY_MS);
+    }
+
+    /**
+     * Words most often typed after {@code previous}, best first
+     */
+    public synchronized List<String> getNextWordPredictions(String previous) {
+        if (previous == null) return new ArrayList<>();
+        return bigrams.predict(previous.toLowerCase().trim(), MAX_PREDICTIONS);
+    }
+
+    /**
+     * Finish loading on the prediction thread, before
+     * {@link #buildCorrectionIndex()}: index the stored words, only the most
+     * frequent ones for a store that keeps them on disk, so predictions,
+     * corrections and glide typing see them. After switching away from Room
+     * the words are taken from there and written to the binary store, whose
+     * copy is stale. Also loads the saved word pairs.
+     */
+    public void loadStoredWords() {
+        BigramModel savedBigrams = new BigramModel();
+        try {
+            savedBigrams.load(bigramFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            savedBigrams = new BigramModel();
+        }
+
+        final Map<String, Integer> stored = new HashMap<>();
+        if (movingFromRoom) {
+            RoomDictionaryStore roomStore = new RoomDictionaryStore(context);
+            roomStore.exportInto(stored::put);
+            roomStore.close();
+            try {
+                // Words learned so far are unresolved and unwritten, so nothing newer is overwritten
+                store.write(stored, true);
+                languageManager.setDictionaryLocation(LanguageManager.STORAGE_BINARY);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        } else {
+            try {
+                store.loadInto(stored::put);
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
 
-        Collections.sort(matches, new Comparator<Map.Entry<String, ?>>() {
-            @Override
-            public int compare(Map.Entry<String, ?> o1, Map.Entry<String, ?> o2) {
-                Integer freq1 = (Integer) o1.getValue();
-                Integer freq2 = (Integer) o2.getValue();
-                return freq2.compareTo(freq1);
+        synchronized (this) {
+            for (Map.Entry<String, Integer> entry : stored.entrySet()) {
+                addStoredFrequency(entry.getKey(), entry.getValue());
             }
+            storedWordsLoaded = true;
+            cache.clear();
+            savedBigrams.addAll(bigrams);
+            bigrams = savedBigrams;
+        }
+    }
+
+    /**
+     * Index a word's stored frequency, adding it to what was learned this session
+     */
+    private void addStoredFrequency(String word, int stored) {
+        if (unresolvedWords.remove(word)) {
+            int frequency = stored + index.getFrequency(word);
+            index.put(word, frequency);
+            dirty.put(word, frequency);
+            cache.invalidate(word);
+        } else if (index.getFrequency(word) == 0) {
+            index.put(word, stored);
+        }
+    }
+
+    /**
+     * Look up the stored frequency of words learned since the last call.
+     * Queries the store without the lock, so only call it from the prediction thread.
+     */
+    private void resolveStoredFrequencies() {
+        final List<String> words;
+        synchronized (this) {
+            // Until then loadStoredWords resolves them, possibly from Room
+            if (!storedWordsLoaded || unresolvedWords.isEmpty()) return;
+            words = new ArrayList<>(unresolvedWords);
+        }
+
+        // Unresolved words are not written, so the stored frequency cannot change meanwhile
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String word : words) {
+            frequencies.put(word, store.getFrequency(word));
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                addStoredFrequency(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Build the typo correction index from the most frequent words. Too slow
+     * for the main thread with a big dictionary, so {@link PredictionWorker}
+     * runs it; corrections are off until it is done.
+     */
+    public void buildCorrectionIndex() {
+        final List<String> words;
+        synchronized (this) {
+            if (typoIndex != null) return;
+            words = getMostFrequentWords(MAX_CORRECTION_WORDS);
+        }
+
+        // Built without the lock so learning on the main thread is not held up
+        DeletionIndex built = new DeletionIndex();
+        built.addAll(words);
+
+        synchronized (this) {
+            for (String word : unindexedWords) {
+                if (built.size() >= MAX_CORRECTION_WORDS) break;
+                built.add(word);
+            }
+            unindexedWords.clear();
+            typoIndex = built;
+            // Cached results were ranked without corrections
+            cache.clear();
+        }
+    }
+
+    private List<String> getMostFrequentWords(int limit) {
+        final List<String> words = new ArrayList<>(index.size());
+        if (index.size() <= limit) {
+            index.forEachWord((word, frequency) -> words.add(word));
+            return words;
+        }
+
+        final Map<String, Integer> frequencies = new HashMap<>();
+        index.forEachWord((word, frequency) -> {
+            words.add(word);
+            frequencies.put(word, frequency);
         });
 
-        List<String> results = new ArrayList<>();
-        if (!prefix.isEmpty()) {
+        Collections.sort(words, (w1, w2) -> frequencies.get(w2).compareTo(frequencies.get(w1)));
+        return new ArrayList<>(words.subList(0, limit));
+    }
+
+    /**
+     * Write all pending words in one batch
+     */
+    public synchronized void flush() {
+        writeDirty(false);
+    }
+
+    /**
+     * Write pending words synchronously, for shutdown
+     */
+    public synchronized void close() {
+        writeDirty(true);
+        store.close();
+        // A queued bigram save still finishes
+        bigramWriter.shutdown();
+    }
+
+    private void writeDirty(boolean sync) {
+        handler.removeCallbacks(flushTask);
+
+        try {
+            // Words without their stored frequency yet would overwrite it
+            Map<String, Integer> ready = dirty;
+            if (!unresolvedWords.isEmpty()) {
+                ready = new HashMap<>(dirty);
+                ready.keySet().removeAll(unresolvedWords);
+            }
+            if (!ready.isEmpty()) {
+                store.write(ready, sync);
+                if (ready == dirty) {
+                    dirty.clear();
+                } else {
+                    dirty.keySet().removeAll(ready.keySet());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // Before the saved pairs are merged in, a save would replace them with this session's
+        if (storedWordsLoaded && (unsavedBigrams >= BIGRAM_SAVE_THRESHOLD || (sync && unsavedBigrams > 0))) {
+            final BigramModel snapshot = bigrams.copy();
+            unsavedBigrams = 0;
+            bigramWriter.execute(() -> {
+                try {
+                    snapshot.save(bigramFile);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+
+    /**
+     * Predictions for the composing text. Store queries run without the
+     * lock, so learning on the main thread does not wait for them.
+     */
+    public List<String> getPredictions(String composingText) {
+        resolveStoredFrequencies();
+        String prefix = composingText.toLowerCase();
+        List<String> matches;
+        long generation;
+        synchronized (this) {
+            List<String> candidates = cache.get(prefix);
+            if (candidates != null) return withTypedText(composingText, candidates);
+            matches = index.topCompletions(prefix, MAX_PREDICTIONS);
+            generation = cache.getGeneration();
+        }
+        return withTypedText(composingText, rankAndCache(prefix, matches, generation));
+    }
+
+    /**
+     * Cursor that follows the composing text through the prefix index
+     */
+    public synchronized PredictionCursor newPredictionCursor() {
+        return new PredictionCursor(index);
+    }
+
+    /**
+     * Same as {@link #getPredictions(String)}, but reads completions from
+     * the cursor's position instead of looking the prefix up again
+     */
+    public List<String> getPredictions(PredictionCursor cursor, String composingText) {
+        resolveStoredFrequencies();
+        String prefix;
+        List<String> matches;
+        long generation;
+        synchronized (this) {
+            if (!cursor.matches(composingText)) {
+                cursor.sync(composingText);
+            }
+            prefix = cursor.getText();
+            List<String> candidates = cache.get(prefix);
+            if (candidates != null) return withTypedText(composingText, candidates);
+            matches = cursor.getCompletions(MAX_PREDICTIONS);
+            generation = cache.getGeneration();
+        }
+        return withTypedText(composingText, rankAndCache(prefix, matches, generation));
+    }
+
+    /**
+     * Words matching a glide path, best first. With the Room store only
+     * the most frequent stored words and this session's are in the prefix index.
+     */
+    public List<String> decodeGlide(GlideDecoder decoder, float[] xs, float[] ys, int count) {
+        resolveStoredFrequencies();
+        synchronized (this) {
+            return decoder.decode(index, xs, ys, count, MAX_PREDICTIONS);
+        }
+    }
+
+    /**
+     * Query the store for the prefix without the lock, then rank and cache
+     * the candidates unless a word changed in between
+     */
+    private List<String> rankAndCache(String prefix, List<String> matches, long generation) {
+        final Map<String, Integer> stored = new HashMap<>();
+        if (store.hasPrefixIndex()) {
+            store.queryPrefix(prefix, MAX_PREDICTIONS, stored::put);
+        }
+        synchronized (this) {
+            List<String> candidates = rankCandidates(prefix, matches, stored);
+            cache.put(prefix, candidates, generation);
+            return candidates;
+        }
+    }
+
+    /**
+     * Prediction cache statistics
+     */
+    public PredictionCache getPredictionCache() {
+        return cache;
+    }
+
+    private List<String> withTypedText(String composingText, List<String> candidates) {
+        List<String> results = new ArrayList<>(candidates.size() + 1);
+        if (!composingText.isEmpty()) {
             results.add(composingText); 
         }
+        results.addAll(candidates);
+        return results;
+    }
+
+    /**
+     * Completions and corrections of a lowercase prefix, best first, without the prefix itself
+     */
+    private List<String> rankCandidates(String prefix, List<String> matches, Map<String, Integer> stored) {
+        if (!stored.isEmpty()) {
+            matches = mergeStoredCompletions(matches, stored);
+        }
+
+        List<String> corrections = getCorrections(prefix);
+
+        List<String> results = new ArrayList<>();
+
+        // A single-edit fix that beats every completion goes first, e.g. "teh" -> "the"
+        int bestCompletion = matches.isEmpty() ? 0 : getFrequency(matches.get(0), stored);
+        for (String word : corrections) {
+            if (DeletionIndex.distance(prefix, word, 1) == 1 && index.getFrequency(word) > bestCompletion) {
+                results.add(word);
+            }
+        }
 
-        for (int i = 0; i < Math.min(10, matches.size()); i++) {
-            String word = matches.get(i).getKey();
-            if (!word.equalsIgnoreCase(composingText)) {
+        for (String word : matches) {
+            if (!word.equals(prefix) && !results.contains(word)) {
+                results.add(word);
+            }
+        }
+
+        for (String word : corrections) {
+            if (results.size() >= MAX_PREDICTIONS) break;
+            if (!results.contains(word)) {
                 results.add(word);
             }
         }
         
         return results;
     }
+
+    /**
+     * Use the key layout to rank corrections
+     */
+    public synchronized void setSpatialModel(SpatialErrorModel model) {
+        this.spatialModel = model;
+        cache.clear();
+    }
+
+    /**
+     * Frequency from the in-memory index, or from the store's matches for words only it has
+     */
+    private int getFrequency(String word, Map<String, Integer> stored) {
+        int frequency = index.getFrequency(word);
+        if (frequency == 0 && stored.containsKey(word)) {
+            frequency = stored.get(word);
+        }
+        return frequency;
+    }
+
+    /**
+     * Whether the word has been learned before. May query the store, so
+     * only call it from the prediction thread.
+     */
+    public boolean isKnownWord(String word) {
+        String key = word.toLowerCase().trim();
+        synchronized (this) {
+            if (index.getFrequency(key) > 0) return true;
+        }
+        return store.hasPrefixIndex() && store.getFrequency(key) > 0;
+    }
+
+    /**
+     * Learned words within a few edits of the input, closest and most frequent first
+     */
+    private List<String> getCorrections(String input) {
+        final List<String> results = new ArrayList<>();
+        if (typoIndex == null || input.length() < MIN_CORRECTION_LENGTH) return results;
+
+        final Map<String, Float> distances = new HashMap<>();
+        final SpatialErrorModel model = spatialModel;
+        int maxDistance = input.length() <= 4 ? 1 : DeletionIndex.MAX_DISTANCE;
+        typoIndex.lookup(input, maxDistance, (word, distance) -> {
+            if (!word.equals(input)) {
+                distances.put(word, model != null ? model.weightedDistance(input, word) : distance);
+                results.add(word);
+            }
+        });
+
+        Collections.sort(results, (w1, w2) -> {
+            int byDistance = Float.compare(distances.get(w1), distances.get(w2));
+            if (byDistance != 0) return byDistance;
+            return Integer.compare(index.getFrequency(w2), index.getFrequency(w1));
+        });
+        if (results.size() > MAX_PREDICTIONS) {
+            return new ArrayList<>(results.subList(0, MAX_PREDICTIONS));
+        }
+        return results;
+    }
+
+    /**
+     * Merge session words with the store's best matches, preferring the
+     * in-memory frequency of words that have not been flushed yet
+     */
+    private List<String> mergeStoredCompletions(List<String> sessionWords, Map<String, Integer> stored) {
+        final Map<String, Integer> merged = new HashMap<>();
+        for (String word : sessionWords) {
+            merged.put(word, index.getFrequency(word));
+        }
+        for (Map.Entry<String, Integer> entry : stored.entrySet()) {
+            if (!merged.containsKey(entry.getKey()) && index.getFrequency(entry.getKey()) == 0) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(merged.entrySet());
+        Collections.sort(ranked, (e1, e2) -> e2.getValue().compareTo(e1.getValue()));
+
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < Math.min(MAX_PREDICTIONS, ranked.size()); i++) {
+            results.add(ranked.get(i).getKey());
+        }
+        return results;
+    }
 }
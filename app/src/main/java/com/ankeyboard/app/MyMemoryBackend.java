@@ -0,0 +1,158 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Client for the free MyMemory translation API. The base URL can be
+ * swapped, e.g. for a local stand-in server when measuring latency.
+ */
+public class MyMemoryBackend implements TranslationBackend {
+    public static final HttpUrl DEFAULT_URL = HttpUrl.get("https://api.mymemory.translated.net/get");
+    /** A word is not worth waiting for longer than this */
+    public static final long DEFAULT_BUDGET_MS = 3000;
+
+    // One host, so a couple of warm connections are enough; kept across typing pauses
+    private static final OkHttpClient sharedClient = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .connectionPool(new ConnectionPool(2, 5, TimeUnit.MINUTES))
+            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .build();
+
+    private final HttpUrl baseUrl;
+    private final OkHttpClient client;
+    private final long budgetMillis;
+
+    public MyMemoryBackend() {
+        this(DEFAULT_URL, sharedClient, DEFAULT_BUDGET_MS);
+    }
+
+    public MyMemoryBackend(HttpUrl baseUrl) {
+        this(baseUrl, sharedClient, DEFAULT_BUDGET_MS);
+    }
+
+    /**
+     * @param budgetMillis Whole-call timeout, on top of the client's own timeouts
+     */
+    public MyMemoryBackend(HttpUrl baseUrl, OkHttpClient client, long budgetMillis) {
+        this.baseUrl = baseUrl;
+        // Derived clients share the connection pool and dispatcher
+        this.client = client.newBuilder()
+                .callTimeout(budgetMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Client shared by all MyMemory backends, for deriving clients with other settings
+     */
+    public static OkHttpClient getSharedClient() {
+        return sharedClient;
+    }
+
+    @Override
+    public String getName() {
+        return "mymemory";
+    }
+
+    @Override
+    public long getLatencyBudgetMillis() {
+        return budgetMillis;
+    }
+
+    @Override
+    public String translate(String text, String langCode) throws IOException {
+        HttpUrl url = baseUrl.newBuilder()
+                .addQueryParameter("q", text)
+                .addQueryParameter("langpair", "auto|" + langCode)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(url)
+                .addHeader("User-Agent", "AnKeyboard/1.0")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            try {
+                return readTranslatedText(body);
+            } catch (IllegalStateException e) {
+                // JSON of an unexpected shape
+                throw new IOException("Malformed MyMemory response", e);
+            }
+        }
+    }
+
+    /**
+     * Stream responseData.translatedText and responseStatus out of the
+     * response, without buffering the body or reading the matches after
+     * them. MyMemory reports quota and request errors with HTTP 200 and
+     * the error message as the translation, so any other status fails.
+     */
+    private static String readTranslatedText(ResponseBody body) throws IOException {
+        JsonReader reader = new JsonReader(body.charStream());
+        String translated = null;
+        String status = null;
+        reader.beginObject();
+        while (reader.hasNext() && (translated == null || status == null)) {
+            String name = reader.nextName();
+            if ("responseData".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("translatedText".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                        translated = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("responseStatus".equals(name)
+                    && (reader.peek() == JsonToken.NUMBER || reader.peek() == JsonToken.STRING)) {
+                // A number, or a string on some errors
+                status = reader.nextString();
+            } else if ("quotaFinished".equals(name) && reader.peek() == JsonToken.BOOLEAN) {
+                if (reader.nextBoolean()) {
+                    throw new IOException("MyMemory quota finished");
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (!"200".equals(status)) {
+            throw new IOException("MyMemory status " + status + ": " + translated);
+        }
+        return translated;
+    }
+}
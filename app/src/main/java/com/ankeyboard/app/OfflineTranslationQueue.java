@@ -0,0 +1,285 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Handler;
+import android.os.Looper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds translation requests while the device is offline. Requests are
+ * deduplicated, capped at {@link #MAX_ENTRIES} (oldest dropped first) and
+ * saved to disk so they survive the keyboard being killed. When a network
+ * comes back they are sent through the pipeline in bursts of at most
+ * {@link #BURST_SIZE}, one burst per {@link #BURST_INTERVAL_MS}, never
+ * taking the executor slots live typing needs. A request leaves the queue
+ * once it was translated; failed ones go to the back of the queue and are
+ * retried with a growing interval, up to {@link #MAX_ATTEMPTS} times
+ * while online. Used from the main thread.
+ */
+public class OfflineTranslationQueue {
+    private static final String FILE_NAME = "AnKeyboard_TranslationQueue.bin";
+    private static final int MAX_ENTRIES = 200;
+    private static final int BURST_SIZE = 5;
+    private static final long BURST_INTERVAL_MS = 1000;
+    private static final long MAX_BURST_INTERVAL_MS = 60000;
+    // Failed sends while online before a request is given up on
+    private static final int MAX_ATTEMPTS = 8;
+    // Executor slots left free for phrases typed while the queue drains
+    private static final int LIVE_RESERVE = 2;
+    private static final long SAVE_DELAY_MS = 2000;
+
+    private final Context context;
+    private final TranslationPipeline pipeline;
+    private final TranslationExecutor executor;
+    private final File file;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable saveTask = this::save;
+    private final Runnable burstTask = this::sendBurst;
+
+    // Target language of each queued text, keyed by language and text, oldest first
+    private final LinkedHashMap<String, String[]> pending = new LinkedHashMap<>();
+    // Keys of queued requests being translated right now
+    private final Set<String> sending = new HashSet<>();
+    // Failed sends of each queued request while online
+    private final Map<String, Integer> failures = new HashMap<>();
+    private long burstInterval = BURST_INTERVAL_MS;
+    private boolean online;
+    private ConnectivityManager.NetworkCallback networkCallback;
+
+    private long dropped;
+    private long sent;
+
+    /**
+     * @param executor The executor behind the pipeline, to size bursts to its free capacity
+     */
+    public OfflineTranslationQueue(Context context, TranslationPipeline pipeline, TranslationExecutor executor) {
+        this.context = context.getApplicationContext();
+        this.pipeline = pipeline;
+        this.executor = executor;
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        load();
+    }
+
+    /**
+     * Start following connectivity and send anything left from last time
+     */
+    public void start() {
+        online = SketchwareUtil.isConnected(context);
+        try {
+            ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    handler.post(() -> setOnline(true));
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    // Another network may still be up
+                    handler.post(() -> setOnline(SketchwareUtil.isConnected(context)));
+                }
+            };
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            cm.registerNetworkCallback(request, networkCallback);
+        } catch (Exception e) {
+            e.printStackTrace();
+            networkCallback = null;
+        }
+        if (online) scheduleBurst(0);
+    }
+
+    /**
+     * Stop following connectivity and save what is still queued
+     */
+    public void close() {
+        handler.removeCallbacks(burstTask);
+        if (networkCallback != null) {
+            try {
+                ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+                cm.unregisterNetworkCallback(networkCallback);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            networkCallback = null;
+        }
+        handler.removeCallbacks(saveTask);
+        save();
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * Keep a request until the device is back online
+     */
+    public void add(String text, String targetLang) {
+        String key = targetLang + '\u0000' + text;
+        if (pending.containsKey(key)) return;
+        pending.put(key, new String[]{text, targetLang});
+        if (pending.size() > MAX_ENTRIES) {
+            Iterator<String> it = pending.keySet().iterator();
+            failures.remove(it.next());
+            it.remove();
+            dropped++;
+        }
+        scheduleSave();
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Requests dropped because the queue was full or they kept failing
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Queued requests translated after coming back online
+     */
+    public long getSentCount() {
+        return sent;
+    }
+
+    private void setOnline(boolean connected) {
+        boolean wasOnline = online;
+        online = connected;
+        if (connected && !wasOnline) {
+            burstInterval = BURST_INTERVAL_MS;
+            scheduleBurst(0);
+        } else if (!connected) {
+            handler.removeCallbacks(burstTask);
+        }
+    }
+
+    private void scheduleBurst(long delay) {
+        handler.removeCallbacks(burstTask);
+        if (!pending.isEmpty()) {
+            handler.postDelayed(burstTask, delay);
+        }
+    }
+
+    private void sendBurst() {
+        if (!online) return;
+        int burst = Math.min(BURST_SIZE, executor.getFreeCapacity() - LIVE_RESERVE);
+        for (Map.Entry<String, String[]> entry : pending.entrySet()) {
+            if (burst <= 0) break;
+            final String key = entry.getKey();
+            if (!sending.add(key)) continue;
+            final String[] request = entry.getValue();
+            burst--;
+            pipeline.translate(request[0], request[1], (text, translation) -> onSent(key, translation));
+        }
+        scheduleBurst(burstInterval);
+    }
+
+    /**
+     * Called on the main thread when a queued request finished or was dropped
+     */
+    private void onSent(String key, String translation) {
+        sending.remove(key);
+        if (translation == null) {
+            // Offline again, the breaker is open, the executor dropped it or the service has no
+            // answer: slow down and send it after the rest, so failing requests cannot hold up the queue
+            burstInterval = Math.min(burstInterval * 2, MAX_BURST_INTERVAL_MS);
+            String[] request = pending.remove(key);
+            if (request == null) return;
+            int attempts = failures.containsKey(key) ? failures.get(key) : 0;
+            if (online) attempts++;
+            if (attempts >= MAX_ATTEMPTS) {
+                failures.remove(key);
+                dropped++;
+            } else {
+                failures.put(key, attempts);
+                pending.put(key, request);
+            }
+            scheduleSave();
+            return;
+        }
+        burstInterval = BURST_INTERVAL_MS;
+        failures.remove(key);
+        if (pending.remove(key) != null) {
+            sent++;
+            scheduleSave();
+        }
+    }
+
+    private void scheduleSave() {
+        handler.removeCallbacks(saveTask);
+        handler.postDelayed(saveTask, SAVE_DELAY_MS);
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count && i < MAX_ENTRIES; i++) {
+                String targetLang = in.readUTF();
+                String text = in.readUTF();
+                pending.put(targetLang + '\u0000' + text, new String[]{text, targetLang});
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(pending.size());
+            for (String[] request : pending.values()) {
+                out.writeUTF(request[1]);
+                out.writeUTF(request[0]);
+            }
+            out.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+}
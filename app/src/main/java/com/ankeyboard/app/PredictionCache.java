@@ -0,0 +1,110 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of prediction candidates keyed by lowercase prefix
+ */
+public class PredictionCache {
+    private static final int MAX_ENTRIES = 128;
+
+    private final LinkedHashMap<String, List<String>> entries =
+            new LinkedHashMap<String, List<String>>(MAX_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    // Changes on every invalidation, so results ranked from older data are not cached
+    private long generation;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Cached candidates for a prefix, or null
+     */
+    public List<String> get(String prefix) {
+        List<String> cached = entries.get(prefix);
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    public void put(String prefix, List<String> candidates) {
+        entries.put(prefix, Collections.unmodifiableList(candidates));
+    }
+
+    /**
+     * Cache candidates ranked while the cache was at {@code generation},
+     * unless it was invalidated since
+     */
+    public void put(String prefix, List<String> candidates, long generation) {
+        if (generation == this.generation) {
+            put(prefix, candidates);
+        }
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Drop the entries a changed word can affect: its own prefixes, whose
+     * completions rank it, and prefixes close enough to correct to it
+     */
+    public void invalidate(String word) {
+        generation++;
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            String prefix = it.next();
+            if (word.startsWith(prefix)
+                    || DeletionIndex.distance(prefix, word, DeletionIndex.MAX_DISTANCE) <= DeletionIndex.MAX_DISTANCE) {
+                it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
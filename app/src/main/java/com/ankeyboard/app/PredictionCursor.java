@@ -0,0 +1,127 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.List;
+
+/**
+ * Remembers the trie path of the word being composed, so typing or
+ * deleting one character moves one step instead of walking from the root
+ */
+public class PredictionCursor {
+    private final WordTrie trie;
+    private final StringBuilder text = new StringBuilder();
+    // path[i] is the node reached by the first i characters, null once the path leaves the trie
+    private WordTrie.Node[] path = new WordTrie.Node[32];
+    private int version;
+
+    PredictionCursor(WordTrie trie) {
+        this.trie = trie;
+        this.path[0] = trie.getRoot();
+        this.version = trie.getStructureVersion();
+    }
+
+    /**
+     * Advance by one typed character
+     */
+    public void push(char c) {
+        revalidate();
+        c = Character.toLowerCase(c);
+        int depth = text.length();
+        if (depth + 1 == path.length) {
+            WordTrie.Node[] grown = new WordTrie.Node[path.length * 2];
+            System.arraycopy(path, 0, grown, 0, path.length);
+            path = grown;
+        }
+        WordTrie.Node node = path[depth];
+        path[depth + 1] = node != null ? node.child(c) : null;
+        text.append(c);
+    }
+
+    /**
+     * Step back over the last character
+     */
+    public void pop() {
+        if (text.length() > 0) {
+            text.setLength(text.length() - 1);
+        }
+    }
+
+    public void reset() {
+        text.setLength(0);
+    }
+
+    /**
+     * Move to the given text, reusing the common prefix with the current position
+     */
+    public void sync(CharSequence target) {
+        int common = 0;
+        int max = Math.min(text.length(), target.length());
+        while (common < max && text.charAt(common) == Character.toLowerCase(target.charAt(common))) {
+            common++;
+        }
+        text.setLength(common);
+        for (int i = common; i < target.length(); i++) {
+            push(target.charAt(i));
+        }
+    }
+
+    /**
+     * Lowercase text the cursor stands on
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Whether the cursor stands on the same characters, ignoring case
+     */
+    public boolean matches(CharSequence target) {
+        if (target.length() != text.length()) return false;
+        for (int i = 0; i < target.length(); i++) {
+            if (text.charAt(i) != Character.toLowerCase(target.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trie node for the current text, or null if no word starts with it
+     */
+    WordTrie.Node getNode() {
+        revalidate();
+        return path[text.length()];
+    }
+
+    public List<String> getCompletions(int limit) {
+        return WordTrie.topCompletions(getNode(), limit);
+    }
+
+    /**
+     * Words learned since the path was walked may have added nodes where
+     * the path used to end, so walk it again from the root
+     */
+    private void revalidate() {
+        if (version == trie.getStructureVersion()) return;
+        version = trie.getStructureVersion();
+        for (int i = 0; i < text.length(); i++) {
+            WordTrie.Node node = path[i];
+            path[i + 1] = node != null ? node.child(text.charAt(i)) : null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes suggestions on a background thread so keystroke echo never
+ * waits on the dictionary. Every request gets a sequence number; a request
+ * that is no longer the latest is skipped before it runs and its results
+ * are dropped before they reach the UI.
+ */
+public class PredictionWorker {
+
+    /**
+     * Receives the results of the latest request on the main thread
+     */
+    public interface Callback {
+        /**
+         * @param composingText Text the suggestions were computed for, empty for next-word predictions
+         * @param suggestions Typed text first when composing, then the candidates
+         * @param showAutocorrect Whether the first candidate should be offered as autocorrect
+         */
+        void onPredictions(String composingText, List<String> suggestions, boolean showAutocorrect);
+    }
+
+    /**
+     * Receives decoded glide words on the main thread
+     */
+    public interface GlideCallback {
+        /**
+         * @param words Matching words, best first, empty if nothing matched
+         */
+        void onGlideDecoded(List<String> words);
+    }
+
+    private final LearningDictionary brain;
+    private final Callback callback;
+    private final HandlerThread thread;
+    private final Handler workerHandler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger latest = new AtomicInteger();
+
+    // Only touched on the worker thread
+    private final PredictionCursor cursor;
+
+    public PredictionWorker(LearningDictionary brain, Callback callback) {
+        this.brain = brain;
+        this.callback = callback;
+        this.cursor = brain.newPredictionCursor();
+        thread = new HandlerThread("AnKeyboard-Predict", Process.THREAD_PRIORITY_DEFAULT);
+        thread.start();
+        workerHandler = new Handler(thread.getLooper());
+        workerHandler.post(() -> {
+            try {
+                brain.loadStoredWords();
+                brain.buildCorrectionIndex();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Ask for suggestions for the composing text, or for the words that
+     * follow {@code previousWord} when nothing is being composed
+     */
+    public void request(final String composingText, final String previousWord) {
+        final int seq = latest.incrementAndGet();
+        workerHandler.post(() -> {
+            if (seq != latest.get()) return;
+            try {
+                final List<String> suggestions;
+                final boolean showAutocorrect;
+                if (!composingText.isEmpty()) {
+                    suggestions = brain.getPredictions(cursor, composingText);
+                    showAutocorrect = suggestions.size() > 1 && !brain.isKnownWord(composingText);
+                } else if (previousWord != null) {
+                    cursor.reset();
+                    suggestions = brain.getNextWordPredictions(previousWord);
+                    showAutocorrect = false;
+                } else {
+                    cursor.reset();
+                    suggestions = new ArrayList<>();
+                    showAutocorrect = false;
+                }
+                mainHandler.post(() -> {
+                    if (seq == latest.get()) {
+                        callback.onPredictions(composingText, suggestions, showAutocorrect);
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Decode a glide path. Shares the sequence with {@link #request}, so a
+     * newer request of either kind drops the result.
+     */
+    public void requestGlide(final GlideDecoder decoder, final float[] xs, final float[] ys, final int count,
+                             final GlideCallback glideCallback) {
+        final int seq = latest.incrementAndGet();
+        workerHandler.post(() -> {
+            if (seq != latest.get()) return;
+            try {
+                final List<String> words = brain.decodeGlide(decoder, xs, ys, count);
+                mainHandler.post(() -> {
+                    if (seq == latest.get()) {
+                        glideCallback.onGlideDecoded(words);
+                    }
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Run a task on the prediction thread, after the dictionary has finished loading
+     */
+    public void execute(Runnable task) {
+        workerHandler.post(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Forget pending requests so none of their results are shown
+     */
+    public void cancel() {
+        latest.incrementAndGet();
+    }
+
+    public void quit() {
+        cancel();
+        thread.quitSafely();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Store that keeps learned words in SQLite and answers prefix queries from
+ * there, so large personal dictionaries stay out of RAM. Room refuses main
+ * thread queries: writes run on the store's own thread, and reads must be
+ * made from a background thread such as {@link PredictionWorker}'s.
+ */
+public class RoomDictionaryStore implements DictionaryStore {
+    // The binary dictionary has no language, so learned words share one key
+    public static final String DEFAULT_LANGUAGE = "default";
+    // Most frequent words handed to the in-memory index for corrections and glide typing
+    private static final int LOAD_LIMIT = 16000;
+
+    private final WordDatabase database;
+    private final LearnedWordDao dao;
+    private final String language;
+    // Runs the import and the writes in order
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private volatile Future<?> importTask;
+
+    public RoomDictionaryStore(Context context) {
+        this(context, DEFAULT_LANGUAGE);
+    }
+
+    public RoomDictionaryStore(Context context, String language) {
+        this.database = WordDatabase.getInstance(context);
+        this.dao = database.learnedWordDao();
+        this.language = language;
+    }
+
+    /**
+     * Copy the binary store into the database in the background. Reads
+     * wait until it is done and writes are queued behind it.
+     * @param onDone Run on the store's thread once every word is copied
+     */
+    public void importBinaryDictionary(final Context context, final Runnable onDone) {
+        importTask = writer.submit(() -> {
+            final List<LearnedWord> rows = new ArrayList<>();
+            final long now = System.currentTimeMillis();
+            new BinaryDictionaryStore(context).loadInto((word, frequency) -> rows.add(newRow(word, frequency, now)));
+            if (!rows.isEmpty()) {
+                database.runInTransaction(() -> dao.upsert(rows));
+            }
+            onDone.run();
+        });
+    }
+
+    /**
+     * Every stored word, for moving them back to the binary store. Blocks.
+     */
+    public void exportInto(WordTrie.WordVisitor visitor) {
+        awaitImport();
+        for (LearnedWord row : dao.findAll(language)) {
+            visitor.visit(row.word, row.frequency);
+        }
+    }
+
+    @Override
+    public void loadInto(WordTrie.WordVisitor visitor) {
+        // Only the most frequent words, the rest are queried per prefix
+        awaitImport();
+        for (LearnedWord row : dao.findMostFrequent(language, LOAD_LIMIT)) {
+            visitor.visit(row.word, row.frequency);
+        }
+    }
+
+    @Override
+    public boolean hasPrefixIndex() {
+        return true;
+    }
+
+    @Override
+    public void queryPrefix(String prefix, int limit, WordTrie.WordVisitor visitor) {
+        awaitImport();
+        for (LearnedWord row : dao.findByPrefix(language, prefix, prefix + Character.MAX_VALUE, limit)) {
+            visitor.visit(row.word, row.frequency);
+        }
+    }
+
+    @Override
+    public int getFrequency(String word) {
+        awaitImport();
+        Integer frequency = dao.getFrequency(language, word);
+        return frequency != null ? frequency : 0;
+    }
+
+    @Override
+    public void write(Map<String, Integer> words, boolean sync) throws IOException {
+        final List<LearnedWord> rows = new ArrayList<>(words.size());
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Integer> entry : words.entrySet()) {
+            rows.add(newRow(entry.getKey(), entry.getValue(), now));
+        }
+        Future<?> task = writer.submit(() -> database.runInTransaction(() -> dao.upsert(rows)));
+        if (sync) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private void awaitImport() {
+        Future<?> task = importTask;
+        if (task == null) return;
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+        importTask = null;
+    }
+
+    private LearnedWord newRow(String word, int frequency, long lastUsed) {
+        LearnedWord row = new LearnedWord();
+        row.language = language;
+        row.word = word;
+        row.frequency = frequency;
+        row.lastUsed = lastUsed;
+        return row;
+    }
+
+    @Override
+    public void close() {
+        // Pending writes still finish, the database is shared and closed with the process
+        writer.shutdown();
+    }
+}
@@ -91,6 +91,27 @@ public class SettingsActivity extends AppCompatActivity {
                     });
                 }
                 
+                // Glide typing
+                SwitchPreferenceCompat glideSwitch = findPreference("glide_typing");
+                if (glideSwitch != null) {
+                    glideSwitch.setOnPreferenceChangeListener((preference, newValue) -> {
+                        LanguageManager langManager = new LanguageManager(requireContext());
+                        langManager.setGlideTypingEnabled((Boolean) newValue);
+                        return true;
+                    });
+                }
+                
+                // Large dictionary storage
+                SwitchPreferenceCompat largeDictionarySwitch = findPreference("large_dictionary");
+                if (largeDictionarySwitch != null) {
+                    largeDictionarySwitch.setOnPreferenceChangeListener((preference, newValue) -> {
+                        LanguageManager langManager = new LanguageManager(requireContext());
+                        langManager.setDictionaryStorage((Boolean) newValue
+                                ? LanguageManager.STORAGE_ROOM : LanguageManager.STORAGE_BINARY);
+                        return true;
+                    });
+                }
+                
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,136 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Substitution costs between keys, derived from the key layout. Slipping
+ * onto a neighbouring key is cheap, hitting a key across the board is a
+ * full edit. Costs live in one flat table indexed by character, so scoring
+ * never allocates.
+ */
+public class SpatialErrorModel {
+    private static final int TABLE_SIZE = 128;
+    // Cost per key width of distance between the two key centres
+    private static final float COST_PER_KEY = 0.35f;
+    private static final float MIN_COST = 0.3f;
+
+    private final float[] costs = new float[TABLE_SIZE * TABLE_SIZE];
+
+    // Rows reused by weightedDistance
+    private float[] prev2 = new float[16];
+    private float[] prev = new float[16];
+    private float[] current = new float[16];
+
+    private SpatialErrorModel() {
+        Arrays.fill(costs, 1f);
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            costs[c * TABLE_SIZE + c] = 0f;
+        }
+    }
+
+    /**
+     * Build the table from the key rectangles of a loaded keyboard
+     */
+    public static SpatialErrorModel fromKeyboard(KeyboardModel keyboard) {
+        SpatialErrorModel model = new SpatialErrorModel();
+        List<KeyboardModel.Key> keys = keyboard.getKeys();
+
+        float[] centerX = new float[TABLE_SIZE];
+        float[] centerY = new float[TABLE_SIZE];
+        boolean[] present = new boolean[TABLE_SIZE];
+        float totalWidth = 0;
+        int keyCount = 0;
+        for (KeyboardModel.Key key : keys) {
+            int code = key.getCode();
+            if (code <= 0 || code >= TABLE_SIZE || !Character.isLetterOrDigit(code)) continue;
+            centerX[code] = key.x + key.width / 2f;
+            centerY[code] = key.y + key.height / 2f;
+            present[code] = true;
+            totalWidth += key.width;
+            keyCount++;
+        }
+        if (keyCount == 0) return model;
+
+        float keyWidth = totalWidth / keyCount;
+        for (int a = 0; a < TABLE_SIZE; a++) {
+            if (!present[a]) continue;
+            for (int b = 0; b < TABLE_SIZE; b++) {
+                if (!present[b] || a == b) continue;
+                float dx = centerX[a] - centerX[b];
+                float dy = centerY[a] - centerY[b];
+                float keysApart = (float) Math.sqrt(dx * dx + dy * dy) / keyWidth;
+                model.costs[a * TABLE_SIZE + b] = Math.min(1f, Math.max(MIN_COST, keysApart * COST_PER_KEY));
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Cost of typing {@code typed} when {@code intended} was meant, 0 to 1
+     */
+    public float substitutionCost(char typed, char intended) {
+        if (typed == intended) return 0f;
+        typed = Character.toLowerCase(typed);
+        intended = Character.toLowerCase(intended);
+        if (typed >= TABLE_SIZE || intended >= TABLE_SIZE) {
+            return typed == intended ? 0f : 1f;
+        }
+        return costs[typed * TABLE_SIZE + intended];
+    }
+
+    /**
+     * Optimal string alignment distance where substitutions cost
+     * {@link #substitutionCost}. Not thread safe: it reuses its row buffers.
+     */
+    public float weightedDistance(String typed, String intended) {
+        int n = typed.length();
+        int m = intended.length();
+        if (prev.length <= m) {
+            int capacity = Math.max(m + 1, prev.length * 2);
+            prev2 = new float[capacity];
+            prev = new float[capacity];
+            current = new float[capacity];
+        }
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            char ct = typed.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char ci = intended.charAt(j - 1);
+                float value = Math.min(Math.min(prev[j] + 1, current[j - 1] + 1),
+                        prev[j - 1] + substitutionCost(ct, ci));
+                if (i > 1 && j > 1 && ct == intended.charAt(j - 2) && typed.charAt(i - 2) == ci) {
+                    value = Math.min(value, prev2[j - 2] + 1);
+                }
+                current[j] = value;
+            }
+            float[] recycled = prev2;
+            prev2 = prev;
+            prev = current;
+            current = recycled;
+        }
+        return prev[m];
+    }
+}
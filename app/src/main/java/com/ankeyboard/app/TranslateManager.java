@@ -10,25 +10,67 @@
 
 package com.ankeyboard.app;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import android.content.Context;
+import java.io.File;
 
 /**
  * Simple Google Translate wrapper using free translation API
  * Note: This uses a free API alternative, for production use official Google Cloud Translation API
  */
 public class TranslateManager {
-    private static final String MYMEMORY_API = "https://api.mymemory.translated.net/get";
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(10, TimeUnit.SECONDS)
-            .build();
-    private static final Gson gson = new Gson();
+    private static final String CACHE_FILE = "AnKeyboard_Translations.log";
+    private static TranslationCache cache;
+    private static TranslationBackend backend = new MyMemoryBackend();
+    private static CircuitBreaker breaker = newBreaker(backend);
+    // End-to-end time of calls that reached the backend
+    private static final LatencyHistogram latency = new LatencyHistogram();
+    
+    /**
+     * Set up the translation cache, which reads its file on the first translation.
+     * Until this is called every call goes to the network.
+     */
+    public static synchronized void init(Context context) {
+        if (cache == null) {
+            cache = new TranslationCache(new File(context.getFilesDir(), CACHE_FILE));
+        }
+    }
+    
+    /**
+     * Translation cache, or null before {@link #init}
+     */
+    public static synchronized TranslationCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * Send translations to another service
+     */
+    public static synchronized void setBackend(TranslationBackend translationBackend) {
+        backend = translationBackend;
+        breaker = newBreaker(translationBackend);
+    }
+    
+    public static synchronized TranslationBackend getBackend() {
+        return backend;
+    }
+    
+    /**
+     * Circuit breaker of the current backend
+     */
+    public static synchronized CircuitBreaker getBreaker() {
+        return breaker;
+    }
+    
+    private static CircuitBreaker newBreaker(TranslationBackend translationBackend) {
+        return new CircuitBreaker(translationBackend.getName(), translationBackend.getLatencyBudgetMillis());
+    }
+    
+    /**
+     * Latency of backend calls made through {@link #translate}
+     */
+    public static LatencyHistogram getLatency() {
+        return latency;
+    }
     
     /**
      * Translate text to target language
@@ -41,27 +83,35 @@ public class TranslateManager {
             // Map common language codes
             String langCode = mapLanguageCode(targetLang);
             
-            String url = MYMEMORY_API + "?q=" + 
-                    urlEncode(text) + 
-                    "&langpair=auto|" + langCode;
+            TranslationCache translations = getCache();
+            if (translations != null) {
+                String cached = translations.get(text, langCode);
+                if (cached != null) return cached;
+            }
             
-            Request request = new Request.Builder()
-                    .url(url)
-                    .addHeader("User-Agent", "AnKeyboard/1.0")
-                    .build();
+            TranslationBackend target;
+            CircuitBreaker guard;
+            synchronized (TranslateManager.class) {
+                target = backend;
+                guard = breaker;
+            }
+            // Fail fast while the backend is known to be down; only the cache answers
+            long ticket = guard.tryAcquire();
+            if (ticket == CircuitBreaker.REJECTED) return null;
             
-            try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    JsonObject jsonObject = gson.fromJson(responseBody, JsonObject.class);
-                    
-                    if (jsonObject.has("responseData")) {
-                        JsonObject responseData = jsonObject.getAsJsonObject("responseData");
-                        if (responseData.has("translatedText")) {
-                            return responseData.get("translatedText").getAsString();
-                        }
-                    }
+            long start = System.nanoTime();
+            try {
+                String translated = target.translate(text, langCode);
+                guard.onSuccess(ticket, elapsedMillis(start));
+                if (translations != null && translated != null) {
+                    translations.put(text, langCode, translated);
                 }
+                return translated;
+            } catch (Exception e) {
+                guard.onFailure(ticket, elapsedMillis(start));
+                throw e;
+            } finally {
+                latency.record(elapsedMillis(start));
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -69,6 +119,10 @@ public class TranslateManager {
         return null;
     }
     
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000L;
+    }
+    
     /**
      * Map language names to language codes
      */
@@ -109,14 +163,4 @@ public class TranslateManager {
                 return "en";
         }
     }
-    
-    /**
-     * Simple URL encoder (replacement for URLEncoder for null safety)
-     */
-    private static String urlEncode(String text) {
-        if (text == null) return "";
-        return text.replaceAll(" ", "%20")
-                .replaceAll("\\n", "%0A")
-                .replaceAll("\\r", "%0D");
-    }
 }
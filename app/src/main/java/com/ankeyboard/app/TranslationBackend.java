@@ -0,0 +1,45 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.io.IOException;
+
+/**
+ * A translation service that {@link TranslateManager} sends requests to
+ */
+public interface TranslationBackend {
+    /**
+     * Short name for logs and metrics
+     */
+    String getName();
+
+    /**
+     * Longest a call may take, in milliseconds. Slower calls are cut off
+     * and count against the backend's circuit breaker.
+     */
+    long getLatencyBudgetMillis();
+
+    /**
+     * Translate text. Called on a background thread.
+     * @param langCode Target language code as understood by the service
+     * @return The translation, or null if the service had none
+     * @throws IOException If the call failed
+     */
+    String translate(String text, String langCode) throws IOException;
+}
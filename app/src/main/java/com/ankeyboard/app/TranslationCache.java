@@ -0,0 +1,249 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-level cache of translations keyed by (text, target language).
+ * Recent entries live in a small in-memory LRU; every entry is also
+ * appended to a log file, indexed by file offset in access order, so
+ * translations survive restarts without holding them all in memory.
+ * When the log outgrows {@link #MAX_DISK_BYTES} it is rewritten with the
+ * most recently used entries only. The log is read on the first lookup,
+ * which runs on a translation thread, not when the cache is created.
+ *
+ * Record layout: modified UTF-8 key ("lang\u0000text"), then the translation,
+ * both as written by {@link RandomAccessFile#writeUTF}.
+ */
+public class TranslationCache {
+    private static final int MAX_MEMORY_ENTRIES = 256;
+    private static final long MAX_DISK_BYTES = 512 * 1024;
+    // Longer texts are not worth caching and may not fit writeUTF
+    private static final int MAX_TEXT_LENGTH = 1000;
+
+    private final LinkedHashMap<String, String> memory =
+            new LinkedHashMap<String, String>(MAX_MEMORY_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_MEMORY_ENTRIES;
+                }
+            };
+
+    // Offset of the latest record for each key, least recently used first
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true);
+    private final File file;
+    private RandomAccessFile log;
+    private boolean opened;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+
+    public TranslationCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Cached translation, or null
+     */
+    public synchronized String get(String text, String targetLang) {
+        ensureOpen();
+        String key = key(text, targetLang);
+        String cached = memory.get(key);
+        if (cached != null) {
+            memoryHits++;
+            return cached;
+        }
+
+        Long offset = diskIndex.get(key);
+        if (offset != null && log != null) {
+            try {
+                log.seek(offset);
+                log.readUTF();
+                cached = log.readUTF();
+                memory.put(key, cached);
+                diskHits++;
+                return cached;
+            } catch (IOException e) {
+                e.printStackTrace();
+                diskIndex.remove(key);
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String text, String targetLang, String translation) {
+        if (text.length() > MAX_TEXT_LENGTH || translation.length() > MAX_TEXT_LENGTH) return;
+        ensureOpen();
+        String key = key(text, targetLang);
+        if (translation.equals(memory.put(key, translation)) && diskIndex.containsKey(key)) return;
+        if (log == null) return;
+
+        try {
+            long offset = log.length();
+            log.seek(offset);
+            log.writeUTF(key);
+            log.writeUTF(translation);
+            diskIndex.put(key, offset);
+            if (log.length() > MAX_DISK_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Share of lookups answered from either level
+     */
+    public synchronized float getHitRate() {
+        long total = memoryHits + diskHits + misses;
+        return total == 0 ? 0f : (memoryHits + diskHits) / (float) total;
+    }
+
+    /**
+     * Number of translations stored on disk
+     */
+    public synchronized int size() {
+        return diskIndex.size();
+    }
+
+    public synchronized void close() {
+        try {
+            if (log != null) log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        log = null;
+        // Not reopened after closing
+        opened = true;
+    }
+
+    private static String key(String text, String targetLang) {
+        return targetLang + '\u0000' + text;
+    }
+
+    private void ensureOpen() {
+        if (opened) return;
+        opened = true;
+        try {
+            open();
+        } catch (IOException e) {
+            e.printStackTrace();
+            log = null;
+        }
+    }
+
+    /**
+     * Index the log. A record cut short by a crash is truncated away.
+     */
+    private void open() throws IOException {
+        long offset = 0;
+        boolean truncated = false;
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                long length = file.length();
+                while (offset < length) {
+                    // Peek at the key length to keep track of record offsets
+                    in.mark(2);
+                    int keyLength = in.readUnsignedShort();
+                    in.reset();
+                    String key = in.readUTF();
+                    int valueLength = in.readUnsignedShort();
+                    if (in.skipBytes(valueLength) < valueLength) throw new EOFException();
+                    diskIndex.put(key, offset);
+                    offset += 4 + keyLength + valueLength;
+                }
+            } catch (EOFException | UTFDataFormatException e) {
+                truncated = true;
+            }
+        }
+        log = new RandomAccessFile(file, "rw");
+        if (truncated) {
+            log.setLength(offset);
+        }
+    }
+
+    /**
+     * Rewrite the log with the most recently used entries, filling half the budget
+     */
+    private void compact() throws IOException {
+        List<String> keys = new ArrayList<>(diskIndex.keySet());
+        List<String> keep = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        long bytes = 0;
+        for (int i = keys.size() - 1; i >= 0 && bytes < MAX_DISK_BYTES / 2; i--) {
+            String key = keys.get(i);
+            log.seek(diskIndex.get(key));
+            log.readUTF();
+            String value = log.readUTF();
+            keep.add(key);
+            values.add(value);
+            bytes += log.getFilePointer() - diskIndex.get(key);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        LinkedHashMap<String, Long> offsets = new LinkedHashMap<>(64, 0.75f, true);
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            // Oldest first, so the index keeps its recency order
+            for (int i = keep.size() - 1; i >= 0; i--) {
+                offsets.put(keep.get(i), out.getFilePointer());
+                out.writeUTF(keep.get(i));
+                out.writeUTF(values.get(i));
+            }
+            out.getFD().sync();
+        }
+
+        log.close();
+        boolean replaced = tmp.renameTo(file);
+        log = new RandomAccessFile(file, "rw");
+        if (!replaced) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+        diskIndex.clear();
+        diskIndex.putAll(offsets);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.os.Process;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small fixed pool for translation requests. The queue is short and the
+ * oldest waiting request is dropped when it fills up, since by then the
+ * user has typed past that word anyway.
+ */
+public class TranslationExecutor {
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * A task that wants to know when it was dropped without running
+     */
+    public interface DroppableTask extends Runnable {
+        void onDropped();
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public TranslationExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }, "AnKeyboard-Translate-" + count.incrementAndGet());
+            }
+        };
+        // Same as DiscardOldestPolicy, but tells the dropped task
+        RejectedExecutionHandler dropOldest = (r, e) -> {
+            if (e.isShutdown()) {
+                notifyDropped(r);
+                return;
+            }
+            Runnable oldest = e.getQueue().poll();
+            if (oldest != null) {
+                dropped.incrementAndGet();
+                notifyDropped(oldest);
+            }
+            e.execute(r);
+        };
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory, dropOldest);
+        // Idle threads go away between typing sessions
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Stop taking requests and interrupt the ones running. Requests still
+     * waiting, and any sent afterwards, are told they were dropped.
+     */
+    public void shutdown() {
+        for (Runnable waiting : executor.shutdownNow()) {
+            notifyDropped(waiting);
+        }
+    }
+
+    private static void notifyDropped(Runnable task) {
+        if (task instanceof DroppableTask) {
+            ((DroppableTask) task).onDropped();
+        }
+    }
+
+    /**
+     * Requests waiting for a thread
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Requests that can be added now without one being dropped
+     */
+    public int getFreeCapacity() {
+        if (executor.isShutdown()) return 0;
+        return executor.getQueue().remainingCapacity() + POOL_SIZE - executor.getActiveCount();
+    }
+
+    /**
+     * Threads running a request right now
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getCompletedCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * Requests dropped because the queue was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
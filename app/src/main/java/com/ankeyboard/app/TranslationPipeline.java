@@ -0,0 +1,216 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects committed words into phrases and translates each phrase once.
+ * A phrase is sent when a word ends a sentence, a line ends, the user
+ * stops typing for {@link #IDLE_TIMEOUT_MS}, or it reaches
+ * {@link #MAX_PHRASE_WORDS}. Requests for a text that is already being
+ * translated wait for that call instead of sending their own.
+ * Words are added from the main thread; results are delivered there too.
+ */
+public class TranslationPipeline {
+    private static final long IDLE_TIMEOUT_MS = 800;
+    private static final int MAX_PHRASE_WORDS = 12;
+
+    /**
+     * Receives a finished translation on the main thread
+     */
+    public interface Listener {
+        /**
+         * @param text The phrase that was sent
+         * @param translation Its translation, or null if the call failed
+         */
+        void onTranslated(String text, String translation);
+    }
+
+    private final TranslationExecutor executor;
+    private final Listener listener;
+    private OfflineTranslationQueue offlineQueue;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable idleFlush = this::flush;
+
+    private final StringBuilder phrase = new StringBuilder();
+    private int phraseWords;
+    private String phraseLang;
+
+    // Listeners waiting on each in-flight text, keyed by language and text
+    private final Map<String, List<Listener>> inFlight = new HashMap<>();
+
+    private long requested;
+    private long coalesced;
+    private long sent;
+
+    public TranslationPipeline(TranslationExecutor executor, Listener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Park phrases in this queue instead of sending them while offline
+     */
+    public void setOfflineQueue(OfflineTranslationQueue queue) {
+        offlineQueue = queue;
+    }
+
+    /**
+     * Add a committed word to the current phrase
+     */
+    public void addWord(String word, String targetLang) {
+        if (phraseLang != null && !phraseLang.equals(targetLang)) {
+            flush();
+        }
+        if (phrase.length() > 0) phrase.append(' ');
+        phrase.append(word);
+        phraseWords++;
+        phraseLang = targetLang;
+
+        handler.removeCallbacks(idleFlush);
+        char last = word.charAt(word.length() - 1);
+        if (last == '.' || last == '!' || last == '?' || phraseWords >= MAX_PHRASE_WORDS) {
+            flush();
+        } else {
+            handler.postDelayed(idleFlush, IDLE_TIMEOUT_MS);
+        }
+    }
+
+    /**
+     * Note a committed separator; a new line ends the phrase
+     */
+    public void addSeparator(String separator) {
+        if (separator.indexOf('\n') >= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the current phrase now
+     */
+    public void flush() {
+        handler.removeCallbacks(idleFlush);
+        if (phrase.length() == 0) return;
+        String text = phrase.toString();
+        String lang = phraseLang;
+        phrase.setLength(0);
+        phraseWords = 0;
+        phraseLang = null;
+        if (offlineQueue != null && !offlineQueue.isOnline()) {
+            offlineQueue.add(text, lang);
+            return;
+        }
+        translate(text, lang, listener);
+    }
+
+    /**
+     * Translate a text, sharing the call with an identical request in flight
+     */
+    public void translate(final String text, final String targetLang, Listener callback) {
+        final String key = targetLang + '\u0000' + text;
+        synchronized (inFlight) {
+            requested++;
+            List<Listener> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                coalesced++;
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+            sent++;
+        }
+
+        executor.execute(new TranslationExecutor.DroppableTask() {
+            @Override
+            public void run() {
+                String translation = null;
+                try {
+                    translation = TranslateManager.translate(text, targetLang);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    complete(key, text, translation);
+                }
+            }
+
+            @Override
+            public void onDropped() {
+                complete(key, text, null);
+            }
+        });
+    }
+
+    private void complete(String key, final String text, final String translation) {
+        final List<Listener> done;
+        synchronized (inFlight) {
+            done = inFlight.remove(key);
+        }
+        if (done == null) return;
+        handler.post(() -> {
+            for (Listener l : done) {
+                l.onTranslated(text, translation);
+            }
+        });
+    }
+
+    /**
+     * Drop the phrase being collected
+     */
+    public void cancel() {
+        handler.removeCallbacks(idleFlush);
+        phrase.setLength(0);
+        phraseWords = 0;
+        phraseLang = null;
+    }
+
+    /**
+     * Translations asked for, including phrases and shared requests
+     */
+    public long getRequestedCount() {
+        synchronized (inFlight) {
+            return requested;
+        }
+    }
+
+    /**
+     * Requests served by a call that was already in flight
+     */
+    public long getCoalescedCount() {
+        synchronized (inFlight) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * Calls actually handed to the translation executor
+     */
+    public long getSentCount() {
+        synchronized (inFlight) {
+            return sent;
+        }
+    }
+}
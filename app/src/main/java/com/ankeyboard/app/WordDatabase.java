@@ -0,0 +1,48 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import android.content.Context;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * Room database for learned words
+ */
+@Database(entities = {LearnedWord.class}, version = 1, exportSchema = false)
+public abstract class WordDatabase extends RoomDatabase {
+    private static final String DB_NAME = "AnKeyboard_Words.db";
+    private static volatile WordDatabase instance;
+
+    public abstract LearnedWordDao learnedWordDao();
+
+    public static WordDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (WordDatabase.class) {
+                if (instance == null) {
+                    // Main thread queries stay disallowed, the store reads on the prediction thread
+                    instance = Room.databaseBuilder(context.getApplicationContext(), WordDatabase.class, DB_NAME)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
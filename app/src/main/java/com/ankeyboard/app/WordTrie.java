@@ -0,0 +1,301 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory prefix index of learned words and their frequencies.
+ * Every node caches its best completions so short prefixes answer without a subtree walk.
+ */
+public class WordTrie {
+    /** Completions cached per node */
+    public static final int TOP_K = 10;
+
+    /**
+     * A single character step in the trie. Children are kept in a sorted
+     * array so a node costs a few bytes per edge instead of a whole map.
+     */
+    public static class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+
+        String word;
+        int frequency;
+
+        // Best words in this subtree, most frequent first
+        Node[] top = NO_CHILDREN;
+        int topCount;
+
+        public String getWord() {
+            return word;
+        }
+
+        public int getFrequency() {
+            return frequency;
+        }
+
+        public boolean isWord() {
+            return word != null;
+        }
+
+        Node child(char c) {
+            int index = indexOf(c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int index = indexOf(c);
+            if (index >= 0) return children[index];
+
+            int insertAt = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = childCount == 0 ? 2 : childCount * 2;
+                char[] newKeys = new char[capacity];
+                Node[] newChildren = new Node[capacity];
+                System.arraycopy(keys, 0, newKeys, 0, childCount);
+                System.arraycopy(children, 0, newChildren, 0, childCount);
+                keys = newKeys;
+                children = newChildren;
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+
+            Node node = new Node();
+            keys[insertAt] = c;
+            children[insertAt] = node;
+            childCount++;
+            return node;
+        }
+
+        /**
+         * Rank a word whose frequency went up. Frequencies only grow here,
+         * so a word can only enter the list or move towards its head.
+         */
+        void offer(Node candidate) {
+            int pos = -1;
+            for (int i = 0; i < topCount; i++) {
+                if (top[i] == candidate) {
+                    pos = i;
+                    break;
+                }
+            }
+            if (pos < 0) {
+                if (topCount < TOP_K) {
+                    if (topCount == top.length) {
+                        Node[] grown = new Node[Math.min(TOP_K, topCount == 0 ? 1 : topCount * 2)];
+                        System.arraycopy(top, 0, grown, 0, topCount);
+                        top = grown;
+                    }
+                    pos = topCount++;
+                } else if (candidate.frequency > top[topCount - 1].frequency) {
+                    pos = topCount - 1;
+                } else {
+                    return;
+                }
+                top[pos] = candidate;
+            }
+            while (pos > 0 && top[pos - 1].frequency < top[pos].frequency) {
+                Node swap = top[pos - 1];
+                top[pos - 1] = top[pos];
+                top[pos] = swap;
+                pos--;
+            }
+        }
+
+        /**
+         * Recompute the cached list from this node and its children's lists
+         */
+        void rebuildTop() {
+            topCount = 0;
+            if (isWord()) offer(this);
+            for (int i = 0; i < childCount; i++) {
+                Node child = children[i];
+                for (int j = 0; j < child.topCount; j++) {
+                    offer(child.top[j]);
+                }
+            }
+        }
+
+        private int indexOf(char c) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char k = keys[mid];
+                if (k < c) {
+                    low = mid + 1;
+                } else if (k > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+
+    /**
+     * Receives words from {@link #forEachWord}
+     */
+    public interface WordVisitor {
+        void visit(String word, int frequency);
+    }
+
+    private final Node root = new Node();
+    private int size;
+    // Bumped whenever new nodes appear, so cursors know to re-walk
+    private int structureVersion;
+
+    /**
+     * Set the frequency of a word, adding it if needed
+     */
+    public void put(String word, int frequency) {
+        Node node = insert(word);
+        int oldFrequency = node.frequency;
+        node.frequency = frequency;
+        if (frequency >= oldFrequency) {
+            offerAlongPath(word, node);
+        } else {
+            rebuildAlongPath(word);
+        }
+    }
+
+    /**
+     * Add one to the frequency of a word
+     * @return The new frequency
+     */
+    public int increment(String word) {
+        Node node = insert(word);
+        node.frequency++;
+        offerAlongPath(word, node);
+        return node.frequency;
+    }
+
+    /**
+     * Get the frequency of a word, or 0 if it was never learned
+     */
+    public int getFrequency(String word) {
+        Node node = find(word);
+        return node != null && node.isWord() ? node.frequency : 0;
+    }
+
+    /**
+     * Find the node reached by a prefix, or null if no word starts with it
+     */
+    public Node find(CharSequence prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    int getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Number of distinct words in the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit every word in ascending {@link String#compareTo} order
+     */
+    public void forEachWord(WordVisitor visitor) {
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            if (node.isWord()) {
+                visitor.visit(node.word, node.frequency);
+            }
+            for (int i = node.childCount - 1; i >= 0; i--) {
+                stack.add(node.children[i]);
+            }
+        }
+    }
+
+    /**
+     * Most frequent words starting with the prefix, best first
+     */
+    public List<String> topCompletions(String prefix, int limit) {
+        return topCompletions(find(prefix), limit);
+    }
+
+    /**
+     * Most frequent words below a node, best first. Served straight from
+     * the node's cache, so the cost is independent of the subtree size.
+     */
+    public static List<String> topCompletions(Node node, int limit) {
+        List<String> results = new ArrayList<>();
+        if (node == null) return results;
+
+        int count = Math.min(limit, node.topCount);
+        for (int i = 0; i < count; i++) {
+            results.add(node.top[i].word);
+        }
+        return results;
+    }
+
+    private void offerAlongPath(String word, Node wordNode) {
+        Node node = root;
+        node.offer(wordNode);
+        for (int i = 0; i < word.length(); i++) {
+            node = node.child(word.charAt(i));
+            node.offer(wordNode);
+        }
+    }
+
+    private void rebuildAlongPath(String word) {
+        Node[] path = new Node[word.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < word.length(); i++) {
+            path[i + 1] = path[i].child(word.charAt(i));
+        }
+        for (int i = path.length - 1; i >= 0; i--) {
+            path[i].rebuildTop();
+        }
+    }
+
+    private Node insert(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.getOrAddChild(word.charAt(i));
+        }
+        if (node.word == null) {
+            node.word = word;
+            size++;
+            structureVersion++;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import com.google.gson.JsonObject;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.net.ServerSocketFactory;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the MyMemory API on MockWebServer. Answers every
+ * request with the upper-cased text after a configurable delay, and can
+ * fail a share of them with an HTTP error.
+ */
+public class MockTranslationServer implements Closeable {
+    private final MockWebServer server = new MockWebServer();
+    // Fixed seed so runs are comparable
+    private final Random random = new Random(42);
+    private long minDelayMillis;
+    private long maxDelayMillis;
+    private double errorRate;
+    private int errorCode = 500;
+
+    public MockTranslationServer() throws IOException {
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Base URL to hand to {@link MyMemoryBackend}
+     */
+    public HttpUrl url() {
+        return server.url("/get");
+    }
+
+    /**
+     * Hold each response back by a random time in the range
+     */
+    public synchronized void setDelay(long minMillis, long maxMillis) {
+        minDelayMillis = minMillis;
+        maxDelayMillis = maxMillis;
+    }
+
+    /**
+     * Answer this share of requests, 0 to 1, with an HTTP error
+     */
+    public synchronized void setErrorRate(double rate, int code) {
+        errorRate = rate;
+        errorCode = code;
+    }
+
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
+    /**
+     * A successful MyMemory response body
+     */
+    public static String successBody(String translatedText) {
+        JsonObject data = new JsonObject();
+        data.addProperty("translatedText", translatedText);
+        data.addProperty("match", 1);
+        JsonObject body = new JsonObject();
+        body.add("responseData", data);
+        body.addProperty("quotaFinished", false);
+        body.addProperty("responseDetails", "");
+        body.addProperty("responseStatus", 200);
+        return body.toString();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        long delay;
+        boolean fail;
+        int code;
+        synchronized (this) {
+            delay = minDelayMillis;
+            if (maxDelayMillis > minDelayMillis) {
+                delay += (long) (random.nextDouble() * (maxDelayMillis - minDelayMillis));
+            }
+            fail = random.nextDouble() < errorRate;
+            code = errorCode;
+        }
+
+        MockResponse response;
+        if (fail) {
+            response = new MockResponse().setResponseCode(code);
+        } else {
+            String text = request.getRequestUrl().queryParameter("q");
+            response = new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(successBody(text != null ? text.toUpperCase() : ""));
+        }
+        return response.setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * Turns off Nagle's algorithm on accepted connections. MockWebServer
+     * writes headers and body separately, and the second write would
+     * otherwise wait out the client's delayed ACK, adding about 40 ms to
+     * every response.
+     */
+    private static class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = super.accept();
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
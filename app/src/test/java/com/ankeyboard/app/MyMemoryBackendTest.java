@@ -0,0 +1,114 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MyMemoryBackendTest {
+    private static final long BUDGET_MS = 500;
+
+    private MockWebServer server;
+    private MyMemoryBackend backend;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        backend = new MyMemoryBackend(server.url("/get"), MyMemoryBackend.getSharedClient(), BUDGET_MS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void returnsTranslatedText() throws Exception {
+        server.enqueue(new MockResponse().setBody(MockTranslationServer.successBody("halo dunia")));
+
+        assertEquals("halo dunia", backend.translate("hello world & more", "id"));
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("hello world & more", request.getRequestUrl().queryParameter("q"));
+        assertEquals("auto|id", request.getRequestUrl().queryParameter("langpair"));
+    }
+
+    @Test
+    public void slowResponseIsCutOffAtBudget() {
+        server.enqueue(new MockResponse()
+                .setBody(MockTranslationServer.successBody("late"))
+                .setHeadersDelay(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertFails("hello");
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + elapsedMs + " ms", elapsedMs < BUDGET_MS * 3);
+    }
+
+    @Test
+    public void httpErrorFails() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        assertFails("hello");
+    }
+
+    @Test
+    public void malformedJsonFails() {
+        server.enqueue(new MockResponse().setBody("<html>Bad gateway</html>"));
+        server.enqueue(new MockResponse().setBody("{\"responseData\": {\"translatedText\": \"hal"));
+        server.enqueue(new MockResponse().setBody("[\"halo\"]"));
+        server.enqueue(new MockResponse().setBody("{\"responseData\": {\"translatedText\": \"halo\"}}"));
+
+        assertFails("not json");
+        assertFails("truncated");
+        assertFails("wrong shape");
+        assertFails("no status");
+    }
+
+    @Test
+    public void errorStatusWithHttp200Fails() {
+        server.enqueue(new MockResponse().setBody("{\"responseData\": {\"translatedText\": "
+                + "\"MYMEMORY WARNING: YOU USED ALL AVAILABLE FREE TRANSLATIONS FOR TODAY\"}, "
+                + "\"quotaFinished\": true, \"responseStatus\": 429}"));
+        server.enqueue(new MockResponse().setBody("{\"responseData\": {\"translatedText\": "
+                + "\"'AUTO' IS AN INVALID SOURCE LANGUAGE\"}, \"responseStatus\": \"403\"}"));
+
+        assertFails("quota");
+        assertFails("bad request");
+    }
+
+    private void assertFails(String text) {
+        try {
+            String translated = backend.translate(text, "id");
+            fail("expected a failure, got " + translated);
+        } catch (IOException expected) {
+            // The breaker counts it and nothing is cached
+        }
+    }
+}
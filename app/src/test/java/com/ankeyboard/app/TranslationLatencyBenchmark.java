@@ -0,0 +1,100 @@
+/*
+ * AnKeyboard - A smart learning keyboard for Android
+ * Copyright (C) 2026 AnerysRynz
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.ankeyboard.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * End-to-end translation latency through TranslateManager, MyMemoryBackend
+ * and OkHttp against {@link MockTranslationServer}. Reports p50 and p99
+ * from the histogram the app itself records into.
+ */
+public class TranslationLatencyBenchmark {
+    private static final int REQUESTS = 200;
+    // Untimed calls that open the connection and load the client classes first
+    private static final int WARMUP = 10;
+
+    private MockTranslationServer server;
+    private TranslationBackend previousBackend;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockTranslationServer();
+        previousBackend = TranslateManager.getBackend();
+        TranslateManager.setBackend(new MyMemoryBackend(server.url()));
+        for (int i = 0; i < WARMUP; i++) {
+            TranslateManager.translate("warmup " + i, "english");
+        }
+        TranslateManager.getLatency().reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        TranslateManager.setBackend(previousBackend);
+        server.close();
+    }
+
+    @Test
+    public void latencyWithSteadyServer() {
+        server.setDelay(5, 30);
+
+        int translated = run("steady");
+
+        LatencyHistogram latency = TranslateManager.getLatency();
+        System.out.println("steady server: " + latency);
+        assertEquals(REQUESTS, translated);
+        assertEquals(REQUESTS, latency.getCount());
+        assertTrue(latency.getPercentile(50) >= 5);
+        assertTrue(latency.getPercentile(99) < MyMemoryBackend.DEFAULT_BUDGET_MS);
+    }
+
+    @Test
+    public void latencyWithFailingServer() {
+        server.setDelay(5, 30);
+        server.setErrorRate(0.3, 503);
+
+        int translated = run("failing");
+
+        LatencyHistogram latency = TranslateManager.getLatency();
+        CircuitBreaker breaker = TranslateManager.getBreaker();
+        System.out.println("failing server: " + latency + " translated=" + translated
+                + " rejected=" + breaker.getRejectedCount() + " opened=" + breaker.getTimesOpened());
+        // Only calls that reached the server are timed; the rest were refused by the breaker
+        assertEquals(server.getRequestCount() - WARMUP, latency.getCount());
+        assertEquals(REQUESTS, latency.getCount() + breaker.getRejectedCount());
+        assertTrue(translated < REQUESTS);
+    }
+
+    private int run(String label) {
+        int translated = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            // Distinct texts, so nothing is shared or cached
+            String text = label + " " + i;
+            if (text.toUpperCase().equals(TranslateManager.translate(text, "english"))) {
+                translated++;
+            }
+        }
+        return translated;
+    }
+}